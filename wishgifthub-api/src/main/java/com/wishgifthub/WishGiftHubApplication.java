@@ -2,8 +2,10 @@ package com.wishgifthub;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class WishGiftHubApplication {
     public static void main(String[] args) {
         SpringApplication.run(WishGiftHubApplication.class, args);
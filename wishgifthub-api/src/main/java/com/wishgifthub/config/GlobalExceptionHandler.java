@@ -4,6 +4,7 @@ import com.wishgifthub.exception.BusinessRuleException;
 import com.wishgifthub.exception.DuplicateResourceException;
 import com.wishgifthub.exception.InvalidInvitationException;
 import com.wishgifthub.exception.ResourceNotFoundException;
+import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -100,6 +101,26 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Gère les exceptions ConstraintViolationException et retourne un code 400.
+     * Utilisé pour les paramètres de chemin et de requête contraints par la spécification (ex: @Pattern, @Min)
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<ErrorResponse> handleConstraintViolationException(ConstraintViolationException ex) {
+        String errorMessages = ex.getConstraintViolations().stream()
+                .map(violation -> violation.getMessage())
+                .collect(Collectors.joining(", "));
+
+        logger.warn("Paramètre invalide : {}", errorMessages);
+
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                errorMessages.isEmpty() ? "Paramètre invalide" : errorMessages,
+                "VALIDATION_ERROR"
+        );
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
     /**
      * Gère les exceptions DuplicateResourceException et retourne un code 409.
      */
@@ -0,0 +1,23 @@
+package com.wishgifthub.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Réserve la méthode aux membres du groupe passé en paramètre, d'après les groupes du token de l'utilisateur.
+ * <p>
+ * Vérifié par {@link GroupMembershipAuthorizationManager}, sans expression SpEL ; un non-membre reçoit un 403.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface GroupMember {
+
+    /**
+     * Nom du paramètre (de type UUID) contenant l'identifiant du groupe
+     */
+    String value() default "groupId";
+}
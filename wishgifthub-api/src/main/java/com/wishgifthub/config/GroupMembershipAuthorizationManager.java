@@ -0,0 +1,63 @@
+package com.wishgifthub.config;
+
+import com.wishgifthub.dto.AuthenticatedUser;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Vérifie l'annotation {@link GroupMember} : le groupe passé en paramètre doit figurer parmi les groupes
+ * du principal {@link AuthenticatedUser}.
+ * <p>
+ * La position du paramètre est résolue une fois par méthode ; chaque appel se réduit ensuite à une recherche
+ * dans un Set, sans construction de chaîne ni allocation.
+ */
+public class GroupMembershipAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    /**
+     * Position du paramètre identifiant le groupe, par méthode annotée
+     */
+    private final Map<Method, Integer> groupIdIndexes = new ConcurrentHashMap<>();
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        int index = groupIdIndexes.computeIfAbsent(invocation.getMethod(), this::groupIdIndexOf);
+        if (!(invocation.getArguments()[index] instanceof UUID groupId)) {
+            return DENIED;
+        }
+        Authentication auth = authentication.get();
+        if (auth != null && auth.getPrincipal() instanceof AuthenticatedUser user
+                && user.groupIds().contains(groupId)) {
+            return GRANTED;
+        }
+        return DENIED;
+    }
+
+    private int groupIdIndexOf(Method method) {
+        GroupMember annotation = AnnotatedElementUtils.findMergedAnnotation(method, GroupMember.class);
+        String name = annotation != null ? annotation.value() : "groupId";
+        String[] names = parameterNameDiscoverer.getParameterNames(method);
+        int index = names != null ? Arrays.asList(names).indexOf(name) : -1;
+        if (index < 0 || method.getParameterTypes()[index] != UUID.class) {
+            throw new IllegalStateException("@GroupMember : paramètre UUID '" + name + "' introuvable sur " + method);
+        }
+        return index;
+    }
+}
@@ -1,8 +1,8 @@
 package com.wishgifthub.config;
 
-import com.wishgifthub.entity.User;
-import com.wishgifthub.repository.UserRepository;
+import com.wishgifthub.dto.AuthenticatedUser;
 import com.wishgifthub.service.JwtService;
+import com.wishgifthub.service.UserSnapshotCache;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -20,16 +20,19 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 @Component
 @Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final List<SimpleGrantedAuthority> ADMIN_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    private static final List<SimpleGrantedAuthority> USER_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
     @Autowired
     private JwtService jwtService;
     @Autowired
-    private UserRepository userRepository;
+    private UserSnapshotCache userSnapshotCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -41,26 +44,17 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
         if (token != null) {
             try {
-                UUID userId = jwtService.getUserIdFromToken(token);
-                Optional<User> userOpt = userRepository.findById(userId);
-                if (userOpt.isPresent()) {
-                    User user = userOpt.get();
-
-                    // Ajoute les authorities basées sur isAdmin et les groupes
-                    List<SimpleGrantedAuthority> authorities = new java.util.ArrayList<>();
-
-                    // Ajout du rôle ADMIN ou USER
-                    if (user.isAdmin()) {
-                        authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
-                    } else {
-                        authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-                    }
+                // Une seule vérification de signature pour l'utilisateur et ses groupes ;
+                // l'utilisateur vient du cache d'instantanés, sans lecture en base s'il y est déjà
+                JwtService.VerifiedToken verified = jwtService.verify(token);
+                Optional<UserSnapshotCache.UserSnapshot> snapshotOpt = userSnapshotCache.find(verified.userId());
+                if (snapshotOpt.isPresent()) {
+                    UserSnapshotCache.UserSnapshot snapshot = snapshotOpt.get();
+                    AuthenticatedUser user = new AuthenticatedUser(snapshot.id(), snapshot.email(), snapshot.admin(),
+                            snapshot.pseudo(), snapshot.avatarId(), verified.groupIds());
 
-                    // Ajout des groupes comme authorities
-                    List<UUID> groupIds = jwtService.getGroupIdsFromToken(token);
-                    for (UUID groupId : groupIds) {
-                        authorities.add(new SimpleGrantedAuthority("GROUP_" + groupId.toString()));
-                    }
+                    // Seul le rôle est une authority ; les groupes sont vérifiés par @GroupMember sur le principal
+                    List<SimpleGrantedAuthority> authorities = user.admin() ? ADMIN_AUTHORITIES : USER_AUTHORITIES;
 
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                             user, null, authorities);
@@ -1,6 +1,6 @@
 package com.wishgifthub.controller;
 
-import com.wishgifthub.entity.User;
+import com.wishgifthub.dto.AuthenticatedUser;
 import com.wishgifthub.openapi.api.GroupesApi;
 import com.wishgifthub.openapi.model.GroupRequest;
 import com.wishgifthub.openapi.model.GroupResponse;
@@ -21,34 +21,34 @@ public class GroupController implements GroupesApi {
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public ResponseEntity<GroupResponse> createGroup(GroupRequest groupRequest) {
-        User admin = getCurrentUser();
-        return ResponseEntity.ok(groupService.createGroup(groupRequest, admin.getId()));
+        AuthenticatedUser admin = getCurrentUser();
+        return ResponseEntity.ok(groupService.createGroup(groupRequest, admin.id()));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public ResponseEntity<List<GroupResponse>> getGroups() {
-        User admin = getCurrentUser();
-        return ResponseEntity.ok(groupService.getGroupsByAdmin(admin.getId()));
+        AuthenticatedUser admin = getCurrentUser();
+        return ResponseEntity.ok(groupService.getGroupsByAdmin(admin.id()));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public ResponseEntity<GroupResponse> updateGroup(UUID groupId, GroupRequest groupRequest) {
-        User admin = getCurrentUser();
-        return ResponseEntity.ok(groupService.updateGroup(groupId, groupRequest, admin.getId()));
+        AuthenticatedUser admin = getCurrentUser();
+        return ResponseEntity.ok(groupService.updateGroup(groupId, groupRequest, admin.id()));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public ResponseEntity<Void> deleteGroup(UUID groupId) {
-        User admin = getCurrentUser();
-        groupService.deleteGroup(groupId, admin.getId());
+        AuthenticatedUser admin = getCurrentUser();
+        groupService.deleteGroup(groupId, admin.id());
         return ResponseEntity.noContent().build();
     }
 
-    private User getCurrentUser() {
-        return (User) org.springframework.security.core.context.SecurityContextHolder
+    private AuthenticatedUser getCurrentUser() {
+        return (AuthenticatedUser) org.springframework.security.core.context.SecurityContextHolder
             .getContext().getAuthentication().getPrincipal();
     }
 }
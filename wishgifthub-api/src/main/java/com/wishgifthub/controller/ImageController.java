@@ -0,0 +1,44 @@
+package com.wishgifthub.controller;
+
+import com.wishgifthub.openapi.api.ImagesApi;
+import com.wishgifthub.service.ImageThumbnailService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Controller pour les miniatures des images de souhaits
+ */
+@RestController
+public class ImageController implements ImagesApi {
+
+    @Autowired
+    private ImageThumbnailService imageThumbnailService;
+
+    @Override
+    public ResponseEntity<Resource> getImageThumbnail(String hash, Integer size) {
+        ImageThumbnailService.Thumbnail thumbnail = imageThumbnailService.thumbnail(hash, size != null ? size : 480);
+        if (thumbnail.content() == null) {
+            // Miniature indisponible : l'image d'origine est affichée, et la miniature retentée plus tard
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(thumbnail.sourceUrl()))
+                    .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)))
+                    .build();
+        }
+        // Le contenu d'une empreinte ne change jamais ; une requête If-None-Match reçoit un 304 sans corps.
+        // Réponse authentifiée : seul le navigateur la conserve, pas les caches partagés
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable())
+                .eTag(hash + "-" + thumbnail.size())
+                .body(new ByteArrayResource(thumbnail.content()));
+    }
+}
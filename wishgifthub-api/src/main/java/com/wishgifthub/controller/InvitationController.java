@@ -1,6 +1,6 @@
 package com.wishgifthub.controller;
 
-import com.wishgifthub.entity.User;
+import com.wishgifthub.dto.AuthenticatedUser;
 import com.wishgifthub.openapi.api.InvitationsApi;
 import com.wishgifthub.openapi.model.InvitationRequest;
 import com.wishgifthub.openapi.model.InvitationResponse;
@@ -21,15 +21,15 @@ public class InvitationController implements InvitationsApi {
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public ResponseEntity<InvitationResponse> invite(UUID groupId, InvitationRequest invitationRequest) {
-        User admin = getCurrentUser();
-        return ResponseEntity.ok(invitationService.createInvitation(groupId, invitationRequest, admin.getId()));
+        AuthenticatedUser admin = getCurrentUser();
+        return ResponseEntity.ok(invitationService.createInvitation(groupId, invitationRequest, admin.id()));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public ResponseEntity<List<InvitationResponse>> getInvitations(UUID groupId) {
-        User admin = getCurrentUser();
-        return ResponseEntity.ok(invitationService.getInvitationsByGroup(groupId, admin.getId()));
+        AuthenticatedUser admin = getCurrentUser();
+        return ResponseEntity.ok(invitationService.getInvitationsByGroup(groupId, admin.id()));
     }
 
     @Override
@@ -37,8 +37,8 @@ public class InvitationController implements InvitationsApi {
         return ResponseEntity.ok(invitationService.acceptInvitation(token));
     }
 
-    private User getCurrentUser() {
-        return (User) org.springframework.security.core.context.SecurityContextHolder
+    private AuthenticatedUser getCurrentUser() {
+        return (AuthenticatedUser) org.springframework.security.core.context.SecurityContextHolder
             .getContext().getAuthentication().getPrincipal();
     }
 }
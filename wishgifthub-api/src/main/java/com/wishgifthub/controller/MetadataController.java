@@ -1,14 +1,34 @@
 package com.wishgifthub.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wishgifthub.openapi.api.MetadataApi;
+import com.wishgifthub.openapi.model.MetadataBatchItem;
+import com.wishgifthub.openapi.model.MetadataBatchRequest;
 import com.wishgifthub.openapi.model.MetadataResponse;
+import com.wishgifthub.service.HostLatencyTracker;
 import com.wishgifthub.service.MetadataExtractionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Controller pour l'extraction de métadonnées depuis des URLs
@@ -19,11 +39,25 @@ public class MetadataController implements MetadataApi {
     @Autowired
     private MetadataExtractionService metadataExtractionService;
 
+    @Autowired
+    private HostLatencyTracker hostLatencyTracker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${wishgifthub.metadata.batch.max-concurrent:8}")
+    private int batchMaxConcurrent;
+
+    private static final String TIMEOUT_MESSAGE = "La page met trop de temps à répondre, réessayez dans quelques instants";
+
     @Override
     public ResponseEntity<MetadataResponse> extractMetadata(URI url) {
         try {
-            // Convertir l'URI en String pour le service
-            Map<String, String> metadata = metadataExtractionService.extractMetadata(url.toString());
+            // Le téléchargement s'exécute hors du thread de requête : on attend au plus le délai adapté au site.
+            // En cas de dépassement, il se poursuit en arrière-plan et alimente le cache pour le prochain appel.
+            Duration deadline = hostLatencyTracker.interactiveDeadline(url.toString());
+            Map<String, String> metadata = metadataExtractionService.extractMetadataAsync(url.toString())
+                    .get(deadline.toMillis(), TimeUnit.MILLISECONDS);
 
             MetadataResponse response = new MetadataResponse();
             response.setTitle(metadata.getOrDefault("title", ""));
@@ -33,17 +67,104 @@ public class MetadataController implements MetadataApi {
             response.setError(null);
 
             return ResponseEntity.ok(response);
+        } catch (TimeoutException e) {
+            return ResponseEntity.ok(errorResponse(TIMEOUT_MESSAGE));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.ok(errorResponse("Extraction interrompue"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return ResponseEntity.ok(errorResponse(cause.getMessage()));
         } catch (Exception e) {
-            // En cas d'erreur, retourner un objet avec le message d'erreur
-            MetadataResponse response = new MetadataResponse();
-            response.setTitle("");
-            response.setDescription("");
-            response.setImage("");
-            response.setPrice("");
-            response.setError(e.getMessage());
+            return ResponseEntity.ok(errorResponse(e.getMessage()));
+        }
+    }
 
-            return ResponseEntity.ok(response);
+    @Override
+    public ResponseEntity<StreamingResponseBody> extractMetadataBatch(MetadataBatchRequest request) {
+        List<URI> urls = request.getUrls();
+        StreamingResponseBody body = out -> streamBatch(urls, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Lance les extractions avec au plus {@code batchMaxConcurrent} en cours (chaque fin d'extraction démarre la suivante)
+     * et écrit une ligne NDJSON dès qu'un résultat est prêt. Si le client se déconnecte, les URLs restantes ne sont pas lancées.
+     */
+    private void streamBatch(List<URI> urls, OutputStream out) throws IOException {
+        BlockingQueue<MetadataBatchItem> completed = new LinkedBlockingQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        for (int i = 0; i < Math.min(batchMaxConcurrent, urls.size()); i++) {
+            startNext(urls, next, completed, cancelled);
         }
+
+        try {
+            for (int written = 0; written < urls.size(); written++) {
+                out.write(objectMapper.writeValueAsBytes(completed.take()));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction interrompue");
+        } catch (IOException e) {
+            cancelled.set(true);
+            throw e;
+        }
+    }
+
+    private void startNext(List<URI> urls, AtomicInteger next, BlockingQueue<MetadataBatchItem> completed, AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            return;
+        }
+        int index = next.getAndIncrement();
+        if (index >= urls.size()) {
+            return;
+        }
+        String url = urls.get(index).toString();
+        metadataExtractionService.extractMetadataAsync(url)
+                .orTimeout(hostLatencyTracker.interactiveDeadline(url).toMillis(), TimeUnit.MILLISECONDS)
+                .handle((metadata, error) -> error == null ? batchItem(index, url, metadata) : batchError(index, url, error))
+                .thenAccept(item -> {
+                    completed.add(item);
+                    startNext(urls, next, completed, cancelled);
+                });
+    }
+
+    private MetadataBatchItem batchItem(int index, String url, Map<String, String> metadata) {
+        MetadataBatchItem item = new MetadataBatchItem();
+        item.setIndex(index);
+        item.setUrl(url);
+        item.setTitle(metadata.getOrDefault("title", ""));
+        item.setDescription(metadata.getOrDefault("description", ""));
+        item.setImage(metadata.getOrDefault("image", ""));
+        item.setPrice(metadata.getOrDefault("price", ""));
+        item.setError(null);
+        return item;
+    }
+
+    private MetadataBatchItem batchError(int index, String url, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        MetadataBatchItem item = batchItem(index, url, Map.of());
+        item.setError(cause instanceof TimeoutException ? TIMEOUT_MESSAGE : cause.getMessage());
+        return item;
+    }
+
+    /**
+     * En cas d'erreur, retourne un objet vide avec le message d'erreur
+     */
+    private MetadataResponse errorResponse(String message) {
+        MetadataResponse response = new MetadataResponse();
+        response.setTitle("");
+        response.setDescription("");
+        response.setImage("");
+        response.setPrice("");
+        response.setError(message);
+        return response;
     }
 }
 
@@ -1,5 +1,7 @@
 package com.wishgifthub.controller;
 
+import com.wishgifthub.config.GroupMember;
+import com.wishgifthub.dto.AuthenticatedUser;
 import com.wishgifthub.dto.UserDto;
 import com.wishgifthub.entity.User;
 import com.wishgifthub.openapi.api.UtilisateursApi;
@@ -10,7 +12,6 @@ import com.wishgifthub.service.UserGroupService;
 import com.wishgifthub.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -25,11 +26,11 @@ public class UserGroupController implements UtilisateursApi {
     @Autowired
     private UserService userService;
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<List<UserResponse>> getUsersByGroup(UUID groupId) {
-        User user = getCurrentUser();
-        List<User> users = userGroupService.getUsersByGroup(groupId, user.getId());
+        AuthenticatedUser user = getCurrentUser();
+        List<User> users = userGroupService.getUsersByGroup(groupId, user.id());
 
         List<UserResponse> apiUsers = users.stream()
             .map(this::convertToUserResponse)
@@ -40,15 +41,15 @@ public class UserGroupController implements UtilisateursApi {
 
     @Override
     public ResponseEntity<List<GroupResponse>> getUserGroups() {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(userGroupService.getGroupsByUser(user.getId()));
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(userGroupService.getGroupsByUser(user.id()));
     }
 
     @Override
     public ResponseEntity<UserResponse> updateUserAvatar(UpdateAvatarRequest updateAvatarRequest) {
-        User user = getCurrentUser();
+        AuthenticatedUser user = getCurrentUser();
         UserDto updatedUser = userService.updateUserAvatar(
-            user.getEmail(),
+            user.email(),
             updateAvatarRequest.getAvatarId(),
             updateAvatarRequest.getPseudo()
         );
@@ -64,8 +65,8 @@ public class UserGroupController implements UtilisateursApi {
         return ResponseEntity.ok(response);
     }
 
-    private User getCurrentUser() {
-        return (User) org.springframework.security.core.context.SecurityContextHolder
+    private AuthenticatedUser getCurrentUser() {
+        return (AuthenticatedUser) org.springframework.security.core.context.SecurityContextHolder
             .getContext().getAuthentication().getPrincipal();
     }
 
@@ -1,13 +1,13 @@
 package com.wishgifthub.controller;
 
-import com.wishgifthub.entity.User;
+import com.wishgifthub.config.GroupMember;
+import com.wishgifthub.dto.AuthenticatedUser;
 import com.wishgifthub.openapi.api.SouhaitsApi;
 import com.wishgifthub.openapi.model.WishRequest;
 import com.wishgifthub.openapi.model.WishResponse;
 import com.wishgifthub.service.WishService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -20,65 +20,65 @@ public class WishController implements SouhaitsApi {
     @Autowired
     private WishService wishService;
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<WishResponse> addWish(UUID groupId, WishRequest wishRequest) {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(wishService.createWish(groupId, wishRequest, user.getId()));
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(wishService.createWish(groupId, wishRequest, user.id()));
     }
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
-    public ResponseEntity<List<WishResponse>> getGroupWishes(UUID groupId) {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(wishService.getWishesByGroup(groupId, user.getId()));
+    public ResponseEntity<List<WishResponse>> getGroupWishes(UUID groupId, String sort) {
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(wishService.getWishesByGroup(groupId, user.id(), "price".equals(sort)));
     }
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<Void> deleteWish(UUID groupId, UUID wishId) {
-        User user = getCurrentUser();
-        wishService.deleteWish(groupId, wishId, user.getId());
+        AuthenticatedUser user = getCurrentUser();
+        wishService.deleteWish(groupId, wishId, user.id());
         return ResponseEntity.noContent().build();
     }
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<WishResponse> updateWish(UUID groupId, UUID wishId, WishRequest wishRequest) {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(wishService.updateWish(groupId, wishId, wishRequest, user.getId()));
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(wishService.updateWish(groupId, wishId, wishRequest, user.id()));
     }
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<WishResponse> reserveWish(UUID groupId, UUID wishId) {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(wishService.reserveWish(groupId, wishId, user.getId()));
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(wishService.reserveWish(groupId, wishId, user.id()));
     }
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<WishResponse> unreserveWish(UUID groupId, UUID wishId) {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(wishService.unreserveWish(groupId, wishId, user.getId()));
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(wishService.unreserveWish(groupId, wishId, user.id()));
     }
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<List<WishResponse>> getMyWishes(UUID groupId) {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(wishService.getWishesByUserInGroup(groupId, user.getId(), user.getId()));
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(wishService.getWishesByUserInGroup(groupId, user.id(), user.id()));
     }
 
-    @PreAuthorize("hasAuthority('GROUP_' + #groupId)")
+    @GroupMember
     @Override
     public ResponseEntity<List<WishResponse>> getUserWishes(UUID groupId, UUID userId) {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(wishService.getWishesByUserInGroup(groupId, userId, user.getId()));
+        AuthenticatedUser user = getCurrentUser();
+        return ResponseEntity.ok(wishService.getWishesByUserInGroup(groupId, userId, user.id()));
     }
 
-    private User getCurrentUser() {
-        return (User) org.springframework.security.core.context.SecurityContextHolder
+    private AuthenticatedUser getCurrentUser() {
+        return (AuthenticatedUser) org.springframework.security.core.context.SecurityContextHolder
             .getContext().getAuthentication().getPrincipal();
     }
 }
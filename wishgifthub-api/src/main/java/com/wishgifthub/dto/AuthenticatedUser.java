@@ -0,0 +1,20 @@
+package com.wishgifthub.dto;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Utilisateur authentifié d'une requête, construit à partir du token JWT et de l'instantané de l'utilisateur.
+ * <p>
+ * Remplace l'entité User comme principal : il est immuable et ne nécessite aucune lecture en base.
+ *
+ * @param id       l'identifiant de l'utilisateur
+ * @param email    l'email de l'utilisateur
+ * @param admin    true si l'utilisateur est administrateur
+ * @param pseudo   le pseudo de l'utilisateur (peut être null)
+ * @param avatarId l'identifiant de l'avatar (peut être null)
+ * @param groupIds les groupes de l'utilisateur, tels qu'inscrits dans le token
+ */
+public record AuthenticatedUser(UUID id, String email, boolean admin, String pseudo, String avatarId,
+                                Set<UUID> groupIds) {
+}
@@ -0,0 +1,49 @@
+package com.wishgifthub.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "url_metadata")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UrlMetadata {
+    @Id
+    @Column(name = "url_hash", length = 64)
+    private String urlHash;
+
+    @Column(nullable = false, length = 2048)
+    private String url;
+
+    @Column(length = 1024)
+    private String title;
+
+    @Column(length = 10000)
+    private String description;
+
+    @Column(name = "image_url", length = 2048)
+    private String imageUrl;
+
+    @Column(length = 100)
+    private String price;
+
+    @Column(length = 1024)
+    private String etag;
+
+    @Column(name = "last_modified", length = 100)
+    private String lastModified;
+
+    @Column(name = "fetched_at", nullable = false)
+    private OffsetDateTime fetchedAt;
+
+    @Column(name = "checked_at", nullable = false)
+    private OffsetDateTime checkedAt;
+}
@@ -12,6 +12,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 
@@ -48,6 +49,15 @@ public class Wish {
     @Column(length = 100)
     private String price;
 
+    /**
+     * Montant lu dans {@link #price} par {@link com.wishgifthub.service.PriceParser} (tri et totaux en SQL)
+     */
+    @Column(name = "price_amount", precision = 12, scale = 2)
+    private BigDecimal priceAmount;
+
+    @Column(name = "price_currency", length = 3)
+    private String priceCurrency;
+
     @ManyToOne
     @JoinColumn(name = "reserved_by")
     private User reservedBy;
@@ -0,0 +1,14 @@
+package com.wishgifthub.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception levée sans contacter un site marchand quand celui-ci vient d'échouer plusieurs fois de suite
+ * (circuit ouvert pour cet hôte).
+ */
+public class HostUnavailableException extends IOException {
+
+    public HostUnavailableException(String message) {
+        super(message);
+    }
+}
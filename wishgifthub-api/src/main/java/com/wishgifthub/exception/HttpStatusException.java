@@ -0,0 +1,20 @@
+package com.wishgifthub.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception levée quand un site marchand répond avec un statut HTTP d'erreur.
+ */
+public class HttpStatusException extends IOException {
+
+    private final int status;
+
+    public HttpStatusException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
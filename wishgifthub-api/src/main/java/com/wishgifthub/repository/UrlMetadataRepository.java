@@ -0,0 +1,7 @@
+package com.wishgifthub.repository;
+
+import com.wishgifthub.entity.UrlMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UrlMetadataRepository extends JpaRepository<UrlMetadata, String> {
+}
@@ -1,12 +1,35 @@
 package com.wishgifthub.repository;
 
 import com.wishgifthub.entity.Wish;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
 
 public interface WishRepository extends JpaRepository<Wish, UUID> {
     List<Wish> findByGroupId(UUID groupId);
+
+    /**
+     * Souhaits du groupe par montant croissant, ceux sans montant en dernier (index sur group_id, price_amount)
+     */
+    List<Wish> findByGroupIdOrderByPriceAmountAscCreatedAtAsc(UUID groupId);
     List<Wish> findByGroupIdAndUserId(UUID groupId, UUID userId);
-}
 
+    /**
+     * Page suivante (pagination par clé sur l'id) des souhaits ayant une URL, sans charger les entités associées
+     */
+    List<PriceSnapshot> findByUrlIsNotNullAndIdGreaterThanOrderByIdAsc(UUID afterId, Limit limit);
+
+    /**
+     * Projection minimale utilisée par le rafraîchissement des prix
+     */
+    interface PriceSnapshot {
+        UUID getId();
+        String getUrl();
+        String getPrice();
+        BigDecimal getPriceAmount();
+        String getPriceCurrency();
+    }
+}
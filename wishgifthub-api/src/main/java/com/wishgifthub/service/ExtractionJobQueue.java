@@ -0,0 +1,156 @@
+package com.wishgifthub.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * File d'attente des extractions en arrière-plan, stockée en base (table {@code extraction_jobs}).
+ * <p>
+ * Chaque instance de l'API prend des lots de tâches avec {@code FOR UPDATE SKIP LOCKED} : deux instances ne prennent
+ * jamais la même tâche, et le débit augmente avec le nombre d'instances sans courtier de messages. Une tâche prise
+ * reçoit un bail ({@code lease}) : si l'instance s'arrête avant de la terminer, la tâche est reprise à l'expiration
+ * du bail. Un échec est retenté avec un délai exponentiel, jusqu'à {@code max-attempts} tentatives, puis la tâche
+ * passe à l'état {@code DEAD} (conservée pour analyse, plus jamais reprise).
+ */
+@Slf4j
+@Service
+public class ExtractionJobQueue {
+
+    private static final String ENQUEUE = """
+            INSERT INTO extraction_jobs (wish_id, url) VALUES (?, ?)
+            ON CONFLICT (wish_id) WHERE status IN ('PENDING', 'RUNNING')
+            DO UPDATE SET url = EXCLUDED.url, status = 'PENDING', attempts = 0, run_at = now(), last_error = NULL
+            """;
+
+    private static final String BURY_ABANDONED = """
+            UPDATE extraction_jobs SET status = 'DEAD', last_error = 'Bail expiré à la dernière tentative'
+            WHERE status = 'RUNNING' AND run_at <= now() AND attempts >= ?
+            """;
+
+    private static final String CLAIM = """
+            UPDATE extraction_jobs SET status = 'RUNNING', attempts = attempts + 1, run_at = now() + make_interval(secs => ?)
+            WHERE id IN (
+                SELECT id FROM extraction_jobs
+                WHERE status IN ('PENDING', 'RUNNING') AND run_at <= now()
+                ORDER BY run_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, wish_id, url, attempts
+            """;
+
+    private static final String COMPLETE = "DELETE FROM extraction_jobs WHERE id = ? AND status = 'RUNNING' AND url = ?";
+
+    private static final String FAIL = """
+            UPDATE extraction_jobs SET
+                status = CASE WHEN attempts >= ? THEN 'DEAD' ELSE 'PENDING' END,
+                run_at = now() + make_interval(secs => ?),
+                last_error = ?
+            WHERE id = ? AND status = 'RUNNING'
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${wishgifthub.extraction-jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${wishgifthub.extraction-jobs.lease:5m}")
+    private Duration lease;
+
+    @Value("${wishgifthub.extraction-jobs.backoff:30s}")
+    private Duration backoff;
+
+    @Value("${wishgifthub.extraction-jobs.max-backoff:6h}")
+    private Duration maxBackoff;
+
+    /**
+     * Une tâche a été ajoutée par cette instance depuis la dernière lecture du signal
+     */
+    private final AtomicBoolean enqueued = new AtomicBoolean();
+
+    /**
+     * Tâche prise par cette instance ; {@code attempts} compte la tentative en cours
+     */
+    public record ExtractionJob(UUID id, UUID wishId, String url, int attempts) {
+    }
+
+    /**
+     * Ajoute l'extraction de l'URL d'un souhait. Une tâche encore active pour ce souhait est remplacée
+     * (nouvelle URL, compteur de tentatives remis à zéro).
+     *
+     * @return false si la tâche n'a pas pu être enregistrée (base indisponible)
+     */
+    public boolean enqueue(UUID wishId, String url) {
+        try {
+            jdbcTemplate.update(ENQUEUE, wishId, url);
+            enqueued.set(true);
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Extraction non planifiée pour le souhait {} : {}", wishId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Indique si une tâche a été ajoutée par cette instance depuis le dernier appel, et remet le signal à zéro
+     */
+    public boolean takeEnqueued() {
+        return enqueued.getAndSet(false);
+    }
+
+    /**
+     * Prend au plus {@code limit} tâches prêtes, en ignorant celles qu'une autre instance est en train de prendre
+     */
+    public List<ExtractionJob> claim(int limit) {
+        int buried = jdbcTemplate.update(BURY_ABANDONED, maxAttempts);
+        if (buried > 0) {
+            log.warn("{} extraction(s) abandonnée(s) : bail expiré à la dernière tentative", buried);
+        }
+        return jdbcTemplate.query(CLAIM,
+                (rs, rowNum) -> new ExtractionJob(
+                        rs.getObject("id", UUID.class),
+                        rs.getObject("wish_id", UUID.class),
+                        rs.getString("url"),
+                        rs.getInt("attempts")),
+                (double) lease.toSeconds(), limit);
+    }
+
+    /**
+     * Supprime une tâche terminée (sauf si elle a été replanifiée entre-temps avec une autre URL)
+     */
+    public void complete(ExtractionJob job) {
+        jdbcTemplate.update(COMPLETE, job.id(), job.url());
+    }
+
+    /**
+     * Replanifie une tâche en échec après un délai exponentiel, ou l'abandonne après {@code max-attempts} tentatives
+     *
+     * @return true si la tâche est abandonnée
+     */
+    public boolean fail(ExtractionJob job, String error) {
+        String message = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        jdbcTemplate.update(FAIL, maxAttempts, (double) retryDelay(job.attempts()).toSeconds(), message, job.id());
+        return job.attempts() >= maxAttempts;
+    }
+
+    /**
+     * Délai avant la tentative suivante : {@code backoff} doublé à chaque échec, plafonné, avec ±25 % d'aléa
+     * pour étaler les reprises d'un même lot
+     */
+    private Duration retryDelay(int attempts) {
+        long base = backoff.toMillis() << Math.min(attempts - 1, 20);
+        long delay = Math.min(base, maxBackoff.toMillis());
+        double jitter = 0.75 + ThreadLocalRandom.current().nextDouble() * 0.5;
+        return Duration.ofMillis((long) (delay * jitter));
+    }
+}
@@ -0,0 +1,175 @@
+package com.wishgifthub.service;
+
+import com.wishgifthub.service.ExtractionJobQueue.ExtractionJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Traite les tâches de la file {@code extraction_jobs} sur cette instance.
+ * <p>
+ * À chaque passage, l'instance prend autant de tâches qu'elle a de places libres (au plus {@code max-in-flight}),
+ * lance leurs extractions sur l'exécuteur des téléchargements et rend la main sans attendre : chaque tâche est
+ * terminée ou replanifiée dans le rappel de son extraction.
+ * <p>
+ * Quand la file est vide, la lecture suivante est espacée (intervalle doublé à chaque lecture vide, jusqu'à
+ * {@code idle-max-interval}) pour ne pas interroger la base en continu. Une tâche ajoutée par cette instance
+ * relance les lectures au rythme de {@code poll-interval} ; une tâche ajoutée par une autre instance, ou replanifiée
+ * après un échec, est prise au plus tard après {@code idle-max-interval}.
+ */
+@Slf4j
+@Service
+public class ExtractionJobWorker {
+
+    @Autowired
+    private ExtractionJobQueue extractionJobQueue;
+
+    @Autowired
+    private MetadataExtractionService metadataExtractionService;
+
+    @Autowired
+    private WishEnrichmentService wishEnrichmentService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wishgifthub.extraction-jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wishgifthub.extraction-jobs.max-in-flight:16}")
+    private int maxInFlight;
+
+    @Value("${wishgifthub.extraction-jobs.poll-interval:PT2S}")
+    private Duration pollInterval;
+
+    @Value("${wishgifthub.extraction-jobs.idle-max-interval:30s}")
+    private Duration idleMaxInterval;
+
+    @Value("${wishgifthub.metadata.fetch.background-deadline:45s}")
+    private Duration fetchDeadline;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Attente ajoutée après la dernière lecture vide (zéro tant que des tâches sont trouvées)
+     */
+    private Duration idleDelay = Duration.ZERO;
+
+    /**
+     * Instant ({@link System#nanoTime()}) avant lequel la file n'est pas relue, faute de tâches
+     */
+    private long nextPollAt = System.nanoTime();
+
+    private Counter doneCounter;
+
+    private Counter retriedCounter;
+
+    private Counter deadCounter;
+
+    @PostConstruct
+    void init() {
+        doneCounter = resultCounter("done");
+        retriedCounter = resultCounter("retried");
+        deadCounter = resultCounter("dead");
+    }
+
+    private Counter resultCounter(String result) {
+        return Counter.builder("extraction.jobs")
+                .tag("result", result)
+                .description("Tâches d'extraction terminées, replanifiées après un échec et abandonnées")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prend les tâches prêtes dans la limite des places libres et lance leurs extractions
+     */
+    @Scheduled(fixedDelayString = "${wishgifthub.extraction-jobs.poll-interval:PT2S}",
+            initialDelayString = "${wishgifthub.extraction-jobs.poll-interval:PT2S}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        int free = maxInFlight - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        if (extractionJobQueue.takeEnqueued()) {
+            // La tâche n'est peut-être pas encore validée en base : les lectures reprennent au rythme normal
+            idleDelay = Duration.ZERO;
+        } else if (System.nanoTime() - nextPollAt < 0) {
+            return;
+        }
+        List<ExtractionJob> jobs;
+        try {
+            jobs = extractionJobQueue.claim(free);
+        } catch (DataAccessException e) {
+            log.warn("Lecture de la file d'extraction impossible : {}", e.getMessage());
+            return;
+        }
+        if (jobs.isEmpty()) {
+            Duration doubled = idleDelay.isZero() ? pollInterval : idleDelay.multipliedBy(2);
+            idleDelay = doubled.compareTo(idleMaxInterval) < 0 ? doubled : idleMaxInterval;
+            nextPollAt = System.nanoTime() + idleDelay.toNanos();
+            return;
+        }
+        idleDelay = Duration.ZERO;
+        nextPollAt = System.nanoTime();
+        for (ExtractionJob job : jobs) {
+            inFlight.incrementAndGet();
+            run(job).whenComplete((ignored, error) -> inFlight.decrementAndGet());
+        }
+    }
+
+    private CompletableFuture<Void> run(ExtractionJob job) {
+        // Une nouvelle tentative contourne le cache, qui conserve l'échec précédent quelques minutes
+        CompletableFuture<Map<String, String>> extraction = job.attempts() > 1
+                ? metadataExtractionService.refreshMetadataAsync(job.url())
+                : metadataExtractionService.extractMetadataAsync(job.url());
+        return extraction
+                .orTimeout(fetchDeadline.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((metadata, error) -> {
+                    try {
+                        if (error == null) {
+                            wishEnrichmentService.fillMissingFields(job.wishId(), job.url(), metadata);
+                            extractionJobQueue.complete(job);
+                            doneCounter.increment();
+                        } else {
+                            fail(job, error);
+                        }
+                    } catch (DataAccessException e) {
+                        // La tâche reste prise : elle sera reprise à l'expiration de son bail
+                        log.warn("Résultat de l'extraction {} non enregistré : {}", job.id(), e.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    private void fail(ExtractionJob job, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        String message = cause instanceof TimeoutException
+                ? "Délai d'extraction dépassé"
+                : cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        if (extractionJobQueue.fail(job, message)) {
+            deadCounter.increment();
+            log.warn("Extraction abandonnée après {} tentatives pour {} : {}", job.attempts(), job.url(), message);
+        } else {
+            retriedCounter.increment();
+            log.debug("Extraction en échec pour {} (tentative {}), nouvel essai planifié : {}", job.url(), job.attempts(), message);
+        }
+    }
+}
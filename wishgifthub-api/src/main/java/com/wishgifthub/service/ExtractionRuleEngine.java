@@ -0,0 +1,269 @@
+package com.wishgifthub.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Moteur de règles d'extraction par site marchand.
+ * <p>
+ * Les règles sont lues depuis un fichier JSON ({@code wishgifthub.metadata.rules.location}) : une section
+ * {@code defaults} appliquée à tous les sites, et une liste {@code sites} dont chaque entrée s'applique
+ * aux domaines listés (et à leurs sous-domaines). Sélecteurs CSS et expressions régulières sont compilés
+ * une seule fois au chargement ; seule la règle correspondant à l'hôte de la page est évaluée.
+ * <p>
+ * Le fichier décrit aussi la forme canonique des URLs de chaque site (voir {@link UrlCanonicalizer}) : paramètres de suivi
+ * à retirer, chemin canonique d'une fiche produit et domaines de liens courts.
+ * <p>
+ * Le fichier est surveillé : une modification est prise en compte sans redémarrage. Un fichier invalide
+ * est ignoré et les règles précédentes restent actives. Tant que le fichier configuré est absent (ex : volume
+ * non monté), la copie embarquée dans l'application ({@code wishgifthub.metadata.rules.fallback-location})
+ * est utilisée ; le fichier est pris en compte dès qu'il apparaît.
+ */
+@Slf4j
+@Service
+public class ExtractionRuleEngine {
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${wishgifthub.metadata.rules.location:file:/app/config/extraction-rules.json}")
+    private String rulesLocation;
+
+    @Value("${wishgifthub.metadata.rules.fallback-location:classpath:metadata/extraction-rules.json}")
+    private String fallbackLocation;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private volatile LoadedRules rules;
+
+    /**
+     * Règles compilées pour un site (ou pour la section {@code defaults})
+     */
+    public record SiteRules(String name,
+                            List<Evaluator> title,
+                            List<Evaluator> description,
+                            List<Evaluator> image,
+                            List<Evaluator> price,
+                            Set<String> ignoredTitles,
+                            Pattern titleCleanup,
+                            Pattern pricePattern,
+                            UrlRules url) {
+
+        static final SiteRules NONE = new SiteRules("none", List.of(), List.of(), List.of(), List.of(), Set.of(), null, null, UrlRules.NONE);
+
+        /**
+         * Indique si un titre doit être ignoré (titre générique du site, sans le nom du produit)
+         */
+        public boolean isIgnoredTitle(String title) {
+            return ignoredTitles.contains(title);
+        }
+    }
+
+    /**
+     * Règles de forme canonique des URLs d'un site : paramètres de requête à retirer (noms exacts, ou préfixes pour les
+     * entrées terminées par {@code *}), et chemin canonique d'une fiche produit (la requête est alors entièrement retirée)
+     */
+    public record UrlRules(Set<String> trackingParameters,
+                           List<String> trackingPrefixes,
+                           Pattern canonicalPath,
+                           String canonicalReplacement) {
+
+        static final UrlRules NONE = new UrlRules(Set.of(), List.of(), null, null);
+
+        public boolean isTrackingParameter(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (trackingParameters.contains(lower)) {
+                return true;
+            }
+            for (String prefix : trackingPrefixes) {
+                if (lower.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Définition d'un site telle qu'écrite dans le fichier JSON
+     */
+    record SiteDefinition(String name,
+                          List<String> domains,
+                          List<String> title,
+                          List<String> description,
+                          List<String> image,
+                          List<String> price,
+                          List<String> ignoredTitles,
+                          String titleCleanup,
+                          String pricePattern,
+                          List<String> trackingParameters,
+                          CanonicalDefinition canonicalPath,
+                          List<String> shortLinkDomains) {
+    }
+
+    record CanonicalDefinition(String pattern, String replacement) {
+    }
+
+    record RulesDefinition(SiteDefinition defaults, List<SiteDefinition> sites) {
+    }
+
+    private record LoadedRules(SiteRules defaults, Map<String, SiteRules> byDomain, Set<String> shortLinkDomains,
+                               String location, long lastModified) {
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        rules = load(currentResource());
+    }
+
+    /**
+     * Fichier de règles configuré s'il est lisible, sinon la copie embarquée
+     */
+    private Resource currentResource() {
+        Resource resource = resourceLoader.getResource(rulesLocation);
+        return resource.isReadable() ? resource : resourceLoader.getResource(fallbackLocation);
+    }
+
+    /**
+     * Recharge le fichier de règles s'il a été modifié depuis le dernier chargement
+     */
+    @Scheduled(fixedDelayString = "${wishgifthub.metadata.rules.reload-interval:PT30S}",
+            initialDelayString = "${wishgifthub.metadata.rules.reload-interval:PT30S}")
+    public void reloadIfModified() {
+        Resource resource = currentResource();
+        try {
+            if (resource.getDescription().equals(rules.location()) && resource.lastModified() == rules.lastModified()) {
+                return;
+            }
+            rules = load(resource);
+        } catch (IOException | RuntimeException e) {
+            log.error("Règles d'extraction invalides dans {}, les règles précédentes restent actives : {}", resource.getDescription(), e.getMessage());
+        }
+    }
+
+    /**
+     * Règles communes à tous les sites
+     */
+    public SiteRules defaults() {
+        return rules.defaults();
+    }
+
+    /**
+     * Indique si l'hôte est un service de liens courts déclaré par un site (ex : amzn.to), dont l'URL doit être résolue
+     */
+    public boolean isShortLinkHost(String host) {
+        return host != null && rules.shortLinkDomains().contains(host.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Règles du site correspondant à l'hôte (domaine exact ou domaine parent), ou des règles vides si aucun site ne correspond
+     */
+    public SiteRules forHost(String host) {
+        if (host == null || host.isEmpty()) {
+            return SiteRules.NONE;
+        }
+        Map<String, SiteRules> byDomain = rules.byDomain();
+        String candidate = host.toLowerCase(Locale.ROOT);
+        while (true) {
+            SiteRules site = byDomain.get(candidate);
+            if (site != null) {
+                return site;
+            }
+            int dot = candidate.indexOf('.');
+            if (dot == -1) {
+                return SiteRules.NONE;
+            }
+            candidate = candidate.substring(dot + 1);
+        }
+    }
+
+    private LoadedRules load(Resource resource) throws IOException {
+        RulesDefinition definition;
+        try (InputStream in = resource.getInputStream()) {
+            definition = objectMapper.readValue(in, RulesDefinition.class);
+        }
+
+        SiteRules defaults = definition.defaults() != null ? compile(definition.defaults()) : SiteRules.NONE;
+        Map<String, SiteRules> byDomain = new HashMap<>();
+        Set<String> shortLinkDomains = new HashSet<>();
+        if (definition.sites() != null) {
+            for (SiteDefinition site : definition.sites()) {
+                SiteRules compiled = compile(site);
+                for (String domain : orEmpty(site.domains())) {
+                    byDomain.put(domain.toLowerCase(Locale.ROOT), compiled);
+                }
+                for (String domain : orEmpty(site.shortLinkDomains())) {
+                    shortLinkDomains.add(domain.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        log.info("Règles d'extraction chargées depuis {} : {} domaine(s)", resource.getDescription(), byDomain.size());
+        return new LoadedRules(defaults, Map.copyOf(byDomain), Set.copyOf(shortLinkDomains),
+                resource.getDescription(), resource.lastModified());
+    }
+
+    private static SiteRules compile(SiteDefinition site) {
+        return new SiteRules(
+                site.name() != null ? site.name() : "defaults",
+                compileSelectors(site.title()),
+                compileSelectors(site.description()),
+                compileSelectors(site.image()),
+                compileSelectors(site.price()),
+                Set.copyOf(orEmpty(site.ignoredTitles())),
+                site.titleCleanup() != null ? Pattern.compile(site.titleCleanup()) : null,
+                site.pricePattern() != null ? Pattern.compile(site.pricePattern()) : null,
+                compileUrlRules(site));
+    }
+
+    private static UrlRules compileUrlRules(SiteDefinition site) {
+        Set<String> names = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String parameter : orEmpty(site.trackingParameters())) {
+            String lower = parameter.toLowerCase(Locale.ROOT);
+            if (lower.endsWith("*")) {
+                prefixes.add(lower.substring(0, lower.length() - 1));
+            } else {
+                names.add(lower);
+            }
+        }
+        CanonicalDefinition canonical = site.canonicalPath();
+        return new UrlRules(
+                Set.copyOf(names),
+                List.copyOf(prefixes),
+                canonical != null ? Pattern.compile(canonical.pattern()) : null,
+                canonical != null ? canonical.replacement() : null);
+    }
+
+    private static List<Evaluator> compileSelectors(List<String> selectors) {
+        return orEmpty(selectors).stream()
+                .map(QueryParser::parse)
+                .toList();
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+}
@@ -0,0 +1,196 @@
+package com.wishgifthub.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.wishgifthub.exception.HostUnavailableException;
+import com.wishgifthub.exception.HttpStatusException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Disjoncteur par site marchand.
+ * <p>
+ * Après {@code failure-threshold} échecs consécutifs vers un même hôte (site injoignable, délai dépassé, blocage 403/429,
+ * erreur 5xx), le circuit s'ouvre : les extractions vers cet hôte échouent immédiatement, sans téléchargement,
+ * pendant {@code open-duration}. Ensuite une seule requête d'essai est autorisée : si elle réussit le circuit se referme,
+ * sinon il se rouvre pour une nouvelle période.
+ */
+@Slf4j
+@Component
+public class HostCircuitBreaker {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wishgifthub.metadata.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${wishgifthub.metadata.circuit.open-duration:60s}")
+    private Duration openDuration;
+
+    /**
+     * État par hôte ; les hôtes inactifs depuis une heure sont oubliés
+     */
+    private LoadingCache<String, HostState> states;
+
+    private Counter openedCounter;
+
+    private Counter rejectedCounter;
+
+    private enum Status { CLOSED, OPEN, HALF_OPEN }
+
+    @PostConstruct
+    void init() {
+        states = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofHours(1))
+                .build(host -> new HostState());
+        openedCounter = Counter.builder("metadata.circuit.opened")
+                .description("Ouvertures du circuit d'un site marchand après des échecs consécutifs")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("metadata.circuit.rejected")
+                .description("Extractions refusées sans téléchargement car le circuit du site est ouvert")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Autorise un téléchargement vers l'hôte de l'URL. Le résultat doit ensuite être signalé par
+     * {@link #onSuccess}, {@link #onFailure} ou {@link #release}.
+     *
+     * @throws HostUnavailableException si le circuit de l'hôte est ouvert (ou si la requête d'essai est déjà en cours)
+     */
+    public void acquire(String url) throws HostUnavailableException {
+        String host = hostOf(url);
+        long retryInSeconds = states.get(host).tryAcquire();
+        if (retryInSeconds >= 0) {
+            rejectedCounter.increment();
+            throw new HostUnavailableException("Le site " + host + " ne répond pas actuellement, réessayez dans "
+                    + Math.max(retryInSeconds, 1) + " s");
+        }
+    }
+
+    public void onSuccess(String url) {
+        states.get(hostOf(url)).success();
+    }
+
+    /**
+     * Signale un échec ; seuls les échecs imputables au site (voir {@link #isHostFailure}) sont comptés
+     */
+    public void onFailure(String url, Throwable error) {
+        if (!isHostFailure(error)) {
+            onSuccess(url);
+            return;
+        }
+        String host = hostOf(url);
+        if (states.get(host).failure()) {
+            openedCounter.increment();
+            log.warn("Circuit ouvert pour {} après des échecs consécutifs ({}), pendant {} s",
+                    host, error.getMessage(), openDuration.toSeconds());
+        }
+    }
+
+    /**
+     * Libère l'autorisation sans résultat (téléchargement jamais lancé, par exemple faute de place dans la file d'attente)
+     */
+    public void release(String url) {
+        states.get(hostOf(url)).release();
+    }
+
+    /**
+     * Indique si l'erreur révèle un site en difficulté ou qui nous bloque (et non une URL invalide ou une page absente)
+     */
+    static boolean isHostFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusException status) {
+                int code = status.getStatus();
+                return code == 403 || code == 408 || code == 429 || code >= 500;
+            }
+            if (cause instanceof HttpTimeoutException || cause instanceof ConnectException
+                    || cause instanceof UnknownHostException || cause instanceof SocketException
+                    || cause instanceof SSLException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * État du circuit d'un hôte
+     */
+    private class HostState {
+
+        private Status status = Status.CLOSED;
+
+        private int consecutiveFailures;
+
+        private long openedAt;
+
+        private boolean trialInFlight;
+
+        /**
+         * @return -1 si le téléchargement est autorisé, sinon le nombre de secondes avant le prochain essai possible
+         */
+        synchronized long tryAcquire() {
+            if (status == Status.OPEN) {
+                long remaining = openedAt + openDuration.toNanos() - System.nanoTime();
+                if (remaining > 0) {
+                    return Duration.ofNanos(remaining).toSeconds();
+                }
+                status = Status.HALF_OPEN;
+            }
+            if (status == Status.HALF_OPEN) {
+                if (trialInFlight) {
+                    return openDuration.toSeconds();
+                }
+                trialInFlight = true;
+            }
+            return -1;
+        }
+
+        synchronized void success() {
+            status = Status.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        /**
+         * @return true si cet échec ouvre le circuit
+         */
+        synchronized boolean failure() {
+            consecutiveFailures++;
+            boolean open = status == Status.HALF_OPEN || (status == Status.CLOSED && consecutiveFailures >= failureThreshold);
+            if (open) {
+                status = Status.OPEN;
+                openedAt = System.nanoTime();
+            }
+            trialInFlight = false;
+            return open;
+        }
+
+        synchronized void release() {
+            trialInFlight = false;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.wishgifthub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Durées de téléchargement observées par site marchand, sur une fenêtre glissante des {@code window} derniers
+ * téléchargements.
+ * <p>
+ * Elles fixent le délai d'attente interactif (p95 observé multiplié par {@code deadline-factor}, borné entre
+ * {@code min-deadline} et {@code fetch.deadline}) et le moment où une requête de secours est lancée (p90).
+ * Tant qu'un site n'a pas {@code min-samples} mesures, le délai maximal s'applique et aucune requête de secours
+ * n'est envoyée.
+ */
+@Component
+public class HostLatencyTracker {
+
+    @Value("${wishgifthub.metadata.latency.window:64}")
+    private int window;
+
+    @Value("${wishgifthub.metadata.latency.min-samples:8}")
+    private int minSamples;
+
+    @Value("${wishgifthub.metadata.latency.deadline-factor:1.5}")
+    private double deadlineFactor;
+
+    @Value("${wishgifthub.metadata.latency.min-deadline:3s}")
+    private Duration minDeadline;
+
+    @Value("${wishgifthub.metadata.fetch.deadline:20s}")
+    private Duration maxDeadline;
+
+    /**
+     * Fenêtre par hôte ; les hôtes inactifs depuis une heure sont oubliés
+     */
+    private Cache<String, Window> windows;
+
+    @PostConstruct
+    void init() {
+        windows = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    /**
+     * Enregistre la durée d'un téléchargement terminé (réussi, ou interrompu faute de réponse à temps)
+     */
+    public void record(String url, long nanos) {
+        windows.get(hostOf(url), host -> new Window(window)).add(nanos);
+    }
+
+    /**
+     * Délai d'attente d'une extraction interactive vers l'hôte de l'URL
+     */
+    public Duration interactiveDeadline(String url) {
+        long p95 = percentile(url, 0.95);
+        if (p95 < 0) {
+            return maxDeadline;
+        }
+        long deadline = (long) (p95 * deadlineFactor);
+        return Duration.ofNanos(Math.clamp(deadline, minDeadline.toNanos(), maxDeadline.toNanos()));
+    }
+
+    /**
+     * Délai après lequel une requête de secours est lancée si la première n'a pas abouti (p90 observé)
+     *
+     * @return le délai, ou null si l'hôte n'a pas encore assez de mesures
+     */
+    public Duration hedgeDelay(String url) {
+        long p90 = percentile(url, 0.90);
+        return p90 < 0 ? null : Duration.ofNanos(p90);
+    }
+
+    /**
+     * @return le percentile en nanosecondes, ou -1 si l'hôte a moins de {@code min-samples} mesures
+     */
+    private long percentile(String url, double quantile) {
+        Window samples = windows.getIfPresent(hostOf(url));
+        if (samples == null) {
+            return -1;
+        }
+        long[] sorted = samples.snapshot();
+        if (sorted.length < minSamples) {
+            return -1;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Tampon circulaire des dernières durées d'un hôte
+     */
+    private static class Window {
+
+        private final long[] samples;
+
+        private int next;
+
+        private int size;
+
+        Window(int capacity) {
+            samples = new long[capacity];
+        }
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(samples, size);
+        }
+    }
+}
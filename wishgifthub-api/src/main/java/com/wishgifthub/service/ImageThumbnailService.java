@@ -0,0 +1,425 @@
+package com.wishgifthub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.wishgifthub.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Miniatures des images de souhaits, servies par l'API à la place des images d'origine des sites marchands.
+ * <p>
+ * Une image est identifiée par l'empreinte SHA-256 de son URL (colonne {@code wishes.image_hash}) : seules les
+ * images de souhaits existants peuvent être demandées. À la première demande, l'image d'origine est téléchargée
+ * une seule fois (les demandes simultanées attendent le même téléchargement) et toutes les tailles de
+ * {@code sizes} sont générées en JPEG. Les miniatures sont conservées dans un cache disque borné à
+ * {@code cache.max-size} : les fichiers les moins utilisés sont supprimés quand la limite est atteinte.
+ * <p>
+ * Une image qui ne peut pas être téléchargée ou lue (format non supporté par {@link ImageIO}, comme WebP ou AVIF)
+ * est mémorisée comme indisponible pendant {@code failure-ttl} ; l'appelant redirige alors vers l'image d'origine.
+ */
+@Slf4j
+@Service
+public class ImageThumbnailService {
+
+    private static final String FIND_IMAGE_URL = "SELECT image_url FROM wishes WHERE image_hash = ? LIMIT 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MetadataHttpClient metadataHttpClient;
+
+    @Autowired
+    private MetadataFetchExecutor metadataFetchExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wishgifthub.images.sizes:160,480}")
+    private List<Integer> sizes;
+
+    @Value("${wishgifthub.images.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${wishgifthub.images.cache.directory:${java.io.tmpdir}/wishgifthub-images}")
+    private Path directory;
+
+    @Value("${wishgifthub.images.cache.max-size:512MB}")
+    private DataSize cacheMaxSize;
+
+    @Value("${wishgifthub.images.max-source-size:10MB}")
+    private DataSize maxSourceSize;
+
+    @Value("${wishgifthub.images.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    @Value("${wishgifthub.images.failure-ttl:10m}")
+    private Duration failureTtl;
+
+    @Value("${wishgifthub.images.deadline:10s}")
+    private Duration deadline;
+
+    /**
+     * Miniatures présentes sur disque (nom de fichier → taille en octets). L'éviction supprime le fichier.
+     */
+    private Cache<String, Integer> files;
+
+    /**
+     * URL d'origine par empreinte, pour éviter une requête en base à chaque miniature
+     */
+    private Cache<String, String> sources;
+
+    /**
+     * Images indisponibles (téléchargement ou lecture en échec), par empreinte
+     */
+    private Cache<String, Boolean> failures;
+
+    /**
+     * Générations en cours, par empreinte : une seule génération à la fois pour une même image
+     */
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter generatedCounter;
+
+    private Counter failedCounter;
+
+    /**
+     * Miniature d'une image : contenu JPEG et taille servie, ou contenu null si elle n'est pas disponible
+     * (l'appelant redirige alors vers {@code sourceUrl})
+     */
+    public record Thumbnail(byte[] content, int size, String sourceUrl) {
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        files = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxSize.toBytes())
+                .weigher((String name, Integer length) -> length)
+                .removalListener((String name, Integer length, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        deleteQuietly(directory.resolve(name));
+                    }
+                })
+                .build();
+        sources = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+        failures = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(failureTtl)
+                .build();
+        generatedCounter = resultCounter("generated");
+        failedCounter = resultCounter("failed");
+
+        Files.createDirectories(directory);
+        loadExistingFiles();
+    }
+
+    private Counter resultCounter(String result) {
+        return Counter.builder("images.thumbnails")
+                .tag("result", result)
+                .description("Images d'origine converties en miniatures, ou indisponibles")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reprend les miniatures déjà présentes sur disque, des plus anciennes aux plus récentes.
+     * Les fichiers temporaires laissés par un arrêt pendant une écriture sont supprimés.
+     */
+    private void loadExistingFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(".tmp"))
+                    .forEach(ImageThumbnailService::deleteQuietly);
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(".jpg"))
+                    .map(path -> {
+                        try {
+                            return Map.entry(path, Files.readAttributes(path, BasicFileAttributes.class));
+                        } catch (IOException e) {
+                            return null;
+                        }
+                    })
+                    .filter(entry -> entry != null)
+                    .sorted(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()))
+                    .forEach(entry -> files.put(entry.getKey().getFileName().toString(), (int) entry.getValue().size()));
+        }
+        log.info("{} miniature(s) reprise(s) dans {}", files.estimatedSize(), directory);
+    }
+
+    /**
+     * Adresse de la miniature d'une image, relative à l'API
+     */
+    public String thumbnailPath(String imageUrl) {
+        return "/api/images/" + hashOf(imageUrl);
+    }
+
+    /**
+     * Empreinte d'une URL d'image, identique à celle calculée par la base ({@code image_url_hash})
+     */
+    public static String hashOf(String imageUrl) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(imageUrl.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Miniature d'une image de souhait, générée à la première demande
+     *
+     * @param hash empreinte de l'URL de l'image
+     * @param requestedSize plus grand côté souhaité, arrondi à la plus petite taille de {@code sizes} qui le couvre
+     * @throws ResourceNotFoundException si aucun souhait n'a cette image
+     */
+    public Thumbnail thumbnail(String hash, int requestedSize) {
+        int size = availableSize(requestedSize);
+        String sourceUrl = sources.get(hash, this::findImageUrl);
+        if (sourceUrl == null) {
+            throw new ResourceNotFoundException("Image", hash);
+        }
+
+        byte[] content = readCached(hash, size);
+        if (content != null || failures.getIfPresent(hash) != null) {
+            return new Thumbnail(content, size, sourceUrl);
+        }
+        try {
+            // Au-delà du délai, la génération se poursuit et servira les demandes suivantes
+            inFlight.computeIfAbsent(hash, key -> generate(key, sourceUrl))
+                    .get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return new Thumbnail(null, size, sourceUrl);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Thumbnail(null, size, sourceUrl);
+        }
+        return new Thumbnail(readCached(hash, size), size, sourceUrl);
+    }
+
+    private int availableSize(int requested) {
+        int largest = 0;
+        int best = Integer.MAX_VALUE;
+        for (int size : sizes) {
+            largest = Math.max(largest, size);
+            if (size >= requested) {
+                best = Math.min(best, size);
+            }
+        }
+        return best != Integer.MAX_VALUE ? best : largest;
+    }
+
+    private String findImageUrl(String hash) {
+        List<String> urls = jdbcTemplate.queryForList(FIND_IMAGE_URL, String.class, hash);
+        return urls.isEmpty() ? null : urls.get(0);
+    }
+
+    private byte[] readCached(String hash, int size) {
+        String name = fileName(hash, size);
+        if (files.getIfPresent(name) == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(directory.resolve(name));
+        } catch (NoSuchFileException e) {
+            files.invalidate(name);
+            return null;
+        } catch (IOException e) {
+            log.warn("Lecture de la miniature {} impossible : {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private CompletableFuture<Void> generate(String hash, String sourceUrl) {
+        return metadataFetchExecutor.submit(sourceUrl, () -> {
+                    writeThumbnails(hash, download(sourceUrl));
+                    return (Void) null;
+                })
+                .whenComplete((ignored, error) -> {
+                    inFlight.remove(hash);
+                    if (error == null) {
+                        generatedCounter.increment();
+                    } else {
+                        failedCounter.increment();
+                        failures.put(hash, Boolean.TRUE);
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        log.debug("Miniature indisponible pour {} : {}", sourceUrl, cause.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Télécharge l'image d'origine, dans la limite de {@code max-source-size}
+     */
+    private byte[] download(String sourceUrl) throws IOException {
+        try (MetadataHttpClient.Page page = metadataHttpClient.getImage(sourceUrl);
+             InputStream body = page.body()) {
+            byte[] bytes = body.readNBytes((int) Math.min(maxSourceSize.toBytes() + 1, Integer.MAX_VALUE - 8));
+            if (page.timedOut()) {
+                throw new IOException("Le site " + page.uri().getHost() + " n'a pas envoyé l'image à temps");
+            }
+            if (bytes.length > maxSourceSize.toBytes()) {
+                throw new IOException("Image trop volumineuse");
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Décode l'image d'origine et écrit une miniature JPEG par taille
+     */
+    private void writeThumbnails(String hash, byte[] source) throws IOException {
+        BufferedImage image = decode(source);
+        for (int size : sizes) {
+            BufferedImage thumbnail = resize(image, size);
+            String name = fileName(hash, size);
+            Path target = directory.resolve(name);
+            Path temporary = Files.createTempFile(directory, name, ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temporary)) {
+                    writeJpeg(thumbnail, out);
+                }
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            files.put(name, (int) Files.size(target));
+        }
+    }
+
+    /**
+     * Décode l'image en refusant celles de plus de {@code max-source-pixels} pixels. Les images bien plus grandes
+     * que la plus grande miniature sont sous-échantillonnées dès le décodage, pour limiter la mémoire utilisée.
+     */
+    private BufferedImage decode(byte[] source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Format d'image non supporté");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IOException("Image trop grande : " + width + "x" + height);
+                }
+                int largest = sizes.stream().mapToInt(Integer::intValue).max().orElse(width);
+                int subsampling = Math.max(1, Math.max(width, height) / (largest * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Réduit l'image pour que son plus grand côté fasse au plus {@code size} pixels (jamais d'agrandissement),
+     * par divisions successives par deux puis une dernière interpolation bilinéaire. La transparence est remplacée
+     * par un fond blanc.
+     */
+    private static BufferedImage resize(BufferedImage image, int size) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        int currentWidth = width;
+        int currentHeight = height;
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, currentWidth, currentHeight);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String fileName(String hash, int size) {
+        return hash + "-" + size + ".jpg";
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Suppression de la miniature {} impossible : {}", path, e.getMessage());
+        }
+    }
+}
@@ -32,6 +32,8 @@ public class InvitationService {
     private UserGroupRepository userGroupRepository;
     @Autowired
     private JwtService jwtService;
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
     @Value("${wishgifthub.invitation.base-url:https://app.com/join/}")
     private String invitationBaseUrl;
 
@@ -93,6 +95,7 @@ public class InvitationService {
         }
         if (needsUpdate) {
             userRepository.save(user);
+            userSnapshotCache.invalidate(user.getId());
         }
 
         // Ajout dans user_groups
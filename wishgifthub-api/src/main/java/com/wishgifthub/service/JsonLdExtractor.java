@@ -0,0 +1,272 @@
+package com.wishgifthub.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Lecture des données structurées schema.org ({@code <script type="application/ld+json">}) d'une page produit.
+ * <p>
+ * Seuls les scripts JSON-LD sont lus, avec un parseur JSON en flux : la lecture s'arrête dès qu'un objet
+ * {@code Product} est trouvé, sans construire d'arbre JSON. Les blocs JSON invalides (fréquents sur les sites
+ * marchands) sont ignorés.
+ */
+@Slf4j
+@Component
+public class JsonLdExtractor {
+
+    private static final Evaluator JSON_LD_SCRIPT = QueryParser.parse("script[type=application/ld+json]");
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+            .build();
+
+    /**
+     * Produit décrit par les données structurées. Les champs absents valent null.
+     */
+    public record JsonLdProduct(String name, String description, String image, String price, String currency) {
+
+        /**
+         * Prix au format des autres sources (montant suivi de la devise), ou null si absent
+         */
+        public String formattedPrice() {
+            if (price == null || price.isEmpty()) {
+                return null;
+            }
+            return currency != null && !currency.isEmpty() ? price + " " + currency : price;
+        }
+    }
+
+    private record Offer(String price, String currency) {
+    }
+
+    /**
+     * Cherche le premier produit décrit dans les scripts JSON-LD de la page
+     *
+     * @param doc page analysée
+     * @return le produit trouvé, ou null si la page n'en décrit aucun
+     */
+    public JsonLdProduct extract(Document doc) {
+        for (Element script : doc.select(JSON_LD_SCRIPT)) {
+            String json = script.data();
+            if (json.isBlank()) {
+                continue;
+            }
+            try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+                if (parser.nextToken() == null) {
+                    continue;
+                }
+                JsonLdProduct product = readValue(parser);
+                if (product != null) {
+                    return resolveImage(product, doc.location());
+                }
+            } catch (IOException e) {
+                log.debug("JSON-LD invalide ignoré sur {} : {}", doc.location(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lit la valeur courante (objet, tableau ou scalaire) et renvoie le premier produit qu'elle contient
+     */
+    private JsonLdProduct readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return readObject(parser);
+        }
+        if (token == JsonToken.START_ARRAY) {
+            // Une fois le produit trouvé, le reste du tableau est sauté sans être interprété
+            JsonLdProduct found = null;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (found == null) {
+                    found = readValue(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return found;
+        }
+        return null;
+    }
+
+    /**
+     * Lit un objet JSON-LD. Les objets imbriqués ({@code @graph}, {@code mainEntity}...) sont parcourus
+     * à la recherche d'un produit ; l'objet courant est préféré s'il est lui-même un produit.
+     */
+    private JsonLdProduct readObject(JsonParser parser) throws IOException {
+        boolean product = false;
+        String name = null;
+        String description = null;
+        String image = null;
+        Offer offer = null;
+        JsonLdProduct nested = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "@type" -> product = isProductType(parser);
+                case "name" -> name = readText(parser);
+                case "description" -> description = readText(parser);
+                case "image" -> image = readImage(parser);
+                case "offers" -> offer = readOffer(parser);
+                default -> {
+                    JsonLdProduct found = readValue(parser);
+                    if (nested == null) {
+                        nested = found;
+                    }
+                }
+            }
+        }
+
+        if (product && (name != null || offer != null)) {
+            return new JsonLdProduct(
+                    name != null ? Parser.unescapeEntities(name, false).trim() : null,
+                    description != null ? Parser.unescapeEntities(description, false).trim() : null,
+                    image,
+                    offer != null ? offer.price() : null,
+                    offer != null ? offer.currency() : null);
+        }
+        return nested;
+    }
+
+    /**
+     * {@code @type} peut être une chaîne ou un tableau ; Product, ses sous-types et ProductGroup sont acceptés
+     */
+    private static boolean isProductType(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            boolean product = false;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                product |= isProductType(parser);
+            }
+            return product;
+        }
+        String type = readText(parser);
+        return type != null && (type.endsWith("Product") || type.endsWith("ProductGroup"));
+    }
+
+    /**
+     * Valeur texte d'un scalaire ; les objets et tableaux sont ignorés
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String text = parser.getValueAsString();
+        return text != null && !text.isBlank() ? text : null;
+    }
+
+    /**
+     * {@code image} peut être une URL, un tableau d'URLs ou un objet ImageObject
+     */
+    private static String readImage(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            String first = null;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String image = readImage(parser);
+                if (first == null) {
+                    first = image;
+                }
+            }
+            return first;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            String url = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ((field.equals("url") || field.equals("contentUrl")) && url == null) {
+                    url = readText(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return url;
+        }
+        return readText(parser);
+    }
+
+    /**
+     * {@code offers} peut être une offre, un tableau d'offres ou une AggregateOffer (prix le plus bas) ;
+     * le prix peut aussi figurer dans {@code priceSpecification}
+     */
+    private static Offer readOffer(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            Offer first = null;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Offer offer = readOffer(parser);
+                if (first == null && offer != null) {
+                    first = offer;
+                }
+            }
+            return first;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        String price = null;
+        String lowPrice = null;
+        String currency = null;
+        Offer specification = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "price" -> price = readText(parser);
+                case "lowPrice" -> lowPrice = readText(parser);
+                case "priceCurrency" -> currency = readText(parser);
+                case "priceSpecification" -> specification = readOffer(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (price == null) {
+            price = lowPrice;
+        }
+        if (price == null && specification != null) {
+            return specification;
+        }
+        if (price == null) {
+            return null;
+        }
+        if (currency == null && specification != null) {
+            currency = specification.currency();
+        }
+        return new Offer(price, currency);
+    }
+
+    /**
+     * Rend absolue une URL d'image relative à la page
+     */
+    private static JsonLdProduct resolveImage(JsonLdProduct product, String location) {
+        String image = product.image();
+        if (image == null || image.startsWith("http") || location == null || location.isEmpty()) {
+            return product;
+        }
+        try {
+            String absolute = URI.create(location).resolve(image.trim()).toString();
+            return new JsonLdProduct(product.name(), product.description(), absolute, product.price(), product.currency());
+        } catch (IllegalArgumentException e) {
+            return product;
+        }
+    }
+}
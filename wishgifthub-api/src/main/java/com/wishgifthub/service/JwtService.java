@@ -1,91 +1,227 @@
 package com.wishgifthub.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.wishgifthub.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class JwtService {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Groupes de l'utilisateur : UUID binaires de 16 octets mis bout à bout, encodés en base64url sans remplissage
+     * (22 caractères par groupe au lieu de 39 pour la liste de chaînes)
+     */
+    private static final String GROUPS_CLAIM = "gids";
+
+    /**
+     * Ancienne forme des groupes (liste d'UUID en chaînes), encore lue pour les tokens émis avant GROUPS_CLAIM
+     */
+    private static final String LEGACY_GROUPS_CLAIM = "groupIds";
+
     @Value("${wishgifthub.jwt.secret}")
     private String jwtSecret;
 
     @Value("${wishgifthub.jwt.expiration}")
     private long jwtExpirationMs;
 
+    @Value("${wishgifthub.jwt.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${wishgifthub.jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    /**
+     * Clé HMAC et parseur construits une seule fois : le parseur est immuable et partagé entre les requêtes
+     */
+    private SecretKey signingKey;
+
+    private JwtParser parser;
+
+    /**
+     * Tokens déjà vérifiés, par empreinte SHA-256 (le token lui-même n'est pas conservé), jusqu'à leur expiration.
+     * Un token modifié a une autre empreinte et repasse par la vérification complète.
+     */
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * Contenu vérifié d'un token : utilisateur, rôle administrateur, groupes et date d'expiration
+     */
+    public record VerifiedToken(UUID userId, boolean admin, Set<UUID> groupIds, Instant expiresAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+    }
+
     public String generateToken(User user) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
         return Jwts.builder()
                 .setSubject(user.getId().toString())
                 .claim("isAdmin", user.isAdmin())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String generateToken(User user, List<UUID> groupIds) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-        List<String> groupIdsAsString = groupIds.stream()
-                .map(UUID::toString)
-                .collect(Collectors.toList());
         return Jwts.builder()
                 .setSubject(user.getId().toString())
                 .claim("isAdmin", user.isAdmin())
-                .claim("groupIds", groupIdsAsString)
+                .claim(GROUPS_CLAIM, encodeGroupIds(groupIds))
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public UUID getUserIdFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-        String subject = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-        return UUID.fromString(subject);
+    /**
+     * Vérifie la signature et l'expiration du token, puis lit toutes ses informations en une seule analyse.
+     * Un token déjà vérifié et pas encore expiré est relu depuis le cache, sans nouvelle vérification.
+     *
+     * @throws JwtException si le token est expiré, mal formé ou mal signé
+     */
+    public VerifiedToken verify(String token) {
+        if (!cacheEnabled) {
+            return parse(token);
+        }
+        String digest = digestOf(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
+        VerifiedToken verified = parse(token);
+        verifiedTokens.put(digest, verified);
+        return verified;
     }
 
-    public boolean isAdminFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-        return Boolean.TRUE.equals(Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("isAdmin", Boolean.class));
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() == null) {
+            throw new MalformedJwtException("Token sans date d'expiration");
+        }
+        return new VerifiedToken(
+                UUID.fromString(claims.getSubject()),
+                Boolean.TRUE.equals(claims.get("isAdmin", Boolean.class)),
+                groupIdsOf(claims),
+                claims.getExpiration().toInstant());
     }
 
-    public List<UUID> getGroupIdsFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-        List<String> groupIdsAsString = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("groupIds", List.class);
+    private static String digestOf(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encodeGroupIds(Collection<UUID> groupIds) {
+        ByteBuffer buffer = ByteBuffer.allocate(groupIds.size() * 16);
+        for (UUID groupId : groupIds) {
+            buffer.putLong(groupId.getMostSignificantBits()).putLong(groupId.getLeastSignificantBits());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    private static Set<UUID> groupIdsOf(Claims claims) {
+        String packed = claims.get(GROUPS_CLAIM, String.class);
+        if (packed != null) {
+            byte[] bytes;
+            try {
+                bytes = Base64.getUrlDecoder().decode(packed);
+            } catch (IllegalArgumentException e) {
+                throw new MalformedJwtException("Groupes mal encodés dans le token", e);
+            }
+            if (bytes.length % 16 != 0) {
+                throw new MalformedJwtException("Groupes mal encodés dans le token");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            UUID[] groupIds = new UUID[bytes.length / 16];
+            for (int i = 0; i < groupIds.length; i++) {
+                groupIds[i] = new UUID(buffer.getLong(), buffer.getLong());
+            }
+            return Set.copyOf(Arrays.asList(groupIds));
+        }
+        List<?> groupIdsAsString = claims.get(LEGACY_GROUPS_CLAIM, List.class);
         if (groupIdsAsString == null) {
-            return List.of();
+            return Set.of();
         }
         return groupIdsAsString.stream()
-                .map(UUID::fromString)
-                .collect(Collectors.toList());
+                .map(groupId -> UUID.fromString(groupId.toString()))
+                .collect(Collectors.toUnmodifiableSet());
     }
-}
 
+    public UUID getUserIdFromToken(String token) {
+        return verify(token).userId();
+    }
+
+    public boolean isAdminFromToken(String token) {
+        return verify(token).admin();
+    }
+
+    public List<UUID> getGroupIdsFromToken(String token) {
+        return List.copyOf(verify(token).groupIds());
+    }
+}
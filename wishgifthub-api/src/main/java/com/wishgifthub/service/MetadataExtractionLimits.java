@@ -0,0 +1,335 @@
+package com.wishgifthub.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+
+/**
+ * Limites appliquées à chaque extraction de métadonnées, pour borner la mémoire et le temps consommés
+ * par une page énorme ou malveillante.
+ * <p>
+ * Chaque limite tronque le traitement plutôt que de le faire échouer : les octets au-delà du plafond
+ * ne sont pas lus, l'analyse HTML s'arrête au plafond de nœuds DOM ou à l'échéance, et les champs non encore
+ * extraits à l'échéance restent vides. Chaque troncature est comptée dans {@code metadata.limits.truncated}.
+ */
+@Component
+public class MetadataExtractionLimits {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wishgifthub.metadata.limits.max-bytes:2097152}")
+    private long maxBytes;
+
+    @Value("${wishgifthub.metadata.limits.max-nodes:50000}")
+    private int maxNodes;
+
+    @Value("${wishgifthub.metadata.limits.max-text-chars:100000}")
+    private int maxTextChars;
+
+    @Value("${wishgifthub.metadata.limits.max-extraction-time:5s}")
+    private Duration maxExtractionTime;
+
+    private Counter bytesTruncated;
+
+    private Counter nodesTruncated;
+
+    private Counter timeTruncated;
+
+    private DistributionSummary downloadedBytes;
+
+    @PostConstruct
+    void init() {
+        bytesTruncated = truncationCounter("bytes");
+        nodesTruncated = truncationCounter("nodes");
+        timeTruncated = truncationCounter("time");
+        downloadedBytes = DistributionSummary.builder("metadata.fetch.bytes")
+                .description("Octets (décompressés) lus par extraction")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private Counter truncationCounter(String limit) {
+        return Counter.builder("metadata.limits.truncated")
+                .tag("limit", limit)
+                .description("Extractions tronquées par une limite (octets, nœuds DOM ou durée)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Échéance (en {@link System#nanoTime()}) d'une extraction qui commence maintenant
+     */
+    public long deadline() {
+        return System.nanoTime() + maxExtractionTime.toNanos();
+    }
+
+    /**
+     * Indique si l'échéance est dépassée ; le dépassement est compté une seule fois par extraction via
+     * {@link #recordTimeTruncation()}.
+     */
+    public boolean isExpired(long deadline) {
+        return System.nanoTime() - deadline > 0;
+    }
+
+    public void recordTimeTruncation() {
+        timeTruncated.increment();
+    }
+
+    /**
+     * Borne le nombre d'octets lus sur le flux : au-delà de {@code max-bytes}, le flux se comporte comme terminé.
+     */
+    public InputStream limit(InputStream in) {
+        return new LimitedInputStream(in);
+    }
+
+    /**
+     * Analyse le flux HTML en bornant l'arbre construit : le flux transmis à Jsoup se termine après {@code max-nodes}
+     * balises (chaque balise ouvre au plus un élément, suivi d'au plus un nœud texte) ou à l'échéance de l'extraction.
+     * La mémoire occupée pendant l'analyse est ainsi bornée, et pas seulement celle du document final ; les nœuds
+     * encore au-delà du plafond sont ensuite retirés.
+     *
+     * @param charset  jeu de caractères de la réponse (null : détecté par Jsoup)
+     * @param deadline échéance de l'extraction (voir {@link #deadline()})
+     */
+    public Document parse(InputStream in, String charset, String baseUri, long deadline) throws IOException {
+        TagLimitedInputStream limited = new TagLimitedInputStream(in, deadline);
+        Document doc = Jsoup.parse(limited, charset, baseUri);
+        if (prune(doc) || limited.tagLimitReached) {
+            nodesTruncated.increment();
+        }
+        return doc;
+    }
+
+    /**
+     * Retire du document les nœuds au-delà de {@code max-nodes} (parcours en profondeur, dans l'ordre du document),
+     * pour que les sélecteurs appliqués ensuite restent bornés.
+     *
+     * @return true si des nœuds ont été retirés
+     */
+    private boolean prune(Document doc) {
+        int[] count = {0};
+        boolean[] truncated = {false};
+        doc.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (++count[0] > maxNodes) {
+                    truncated[0] = true;
+                    return FilterResult.REMOVE;
+                }
+                return FilterResult.CONTINUE;
+            }
+
+            @Override
+            public FilterResult tail(Node node, int depth) {
+                return FilterResult.CONTINUE;
+            }
+        });
+        return truncated[0];
+    }
+
+    /**
+     * Texte normalisé d'un élément, limité à {@code max-text-chars} caractères
+     * (remplace {@link Element#text()} qui matérialise tout le texte de la page).
+     */
+    public String boundedText(Element element) {
+        if (element == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        element.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (node instanceof TextNode textNode) {
+                    String chunk = textNode.text();
+                    if (!chunk.isBlank()) {
+                        if (!text.isEmpty()) {
+                            text.append(' ');
+                        }
+                        text.append(chunk.trim());
+                    }
+                }
+                return text.length() >= maxTextChars ? FilterResult.STOP : FilterResult.CONTINUE;
+            }
+
+            @Override
+            public FilterResult tail(Node node, int depth) {
+                return FilterResult.CONTINUE;
+            }
+        });
+        if (text.length() > maxTextChars) {
+            text.setLength(maxTextChars);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Flux borné à {@code max-bytes} octets ; enregistre le volume lu à la fermeture.
+     */
+    private class LimitedInputStream extends FilterInputStream {
+
+        private long remaining = maxBytes;
+
+        private long read;
+
+        private boolean truncated;
+
+        private boolean closed;
+
+        LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                checkTruncated();
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                checkTruncated();
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+                read += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, Math.max(remaining, 0)));
+            remaining -= skipped;
+            read += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), Math.max(remaining, 0));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                downloadedBytes.record(read);
+            }
+            super.close();
+        }
+
+        /**
+         * Plafond atteint : le flux n'est tronqué que s'il restait des octets (une page d'exactement
+         * {@code max-bytes} octets est complète). Un seul octet est lu pour le vérifier.
+         */
+        private void checkTruncated() throws IOException {
+            if (!truncated) {
+                truncated = true;
+                if (super.read() != -1) {
+                    bytesTruncated.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Flux transmis à Jsoup : se termine avant la balise ({@code <}) de rang {@code max-nodes + 1}, ou dès que
+     * l'échéance est dépassée. Le comptage se fait sur les octets, comme la recherche de la fin de l'en-tête
+     * (encodages compatibles ASCII) ; les {@code <} des commentaires ou des scripts sont comptés aussi,
+     * ce qui ne peut que raccourcir l'analyse.
+     */
+    private class TagLimitedInputStream extends FilterInputStream {
+
+        private final long deadline;
+
+        private int tags;
+
+        private boolean ended;
+
+        private boolean tagLimitReached;
+
+        TagLimitedInputStream(InputStream in, long deadline) {
+            super(in);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (ended || isExpired(deadline)) {
+                ended = true;
+                return -1;
+            }
+            int n = super.read(b, off, len);
+            for (int i = 0; i < n; i++) {
+                if (b[off + i] == '<' && ++tags > maxNodes) {
+                    ended = true;
+                    tagLimitReached = true;
+                    return i > 0 ? i : -1;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Les octets sautés ne seraient pas comptés : lecture dans un tampon jeté
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return ended ? 0 : super.available();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
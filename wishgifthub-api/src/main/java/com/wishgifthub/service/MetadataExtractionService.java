@@ -1,71 +1,660 @@
 package com.wishgifthub.service;
 
-import org.jsoup.Jsoup;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.wishgifthub.entity.UrlMetadata;
+import com.wishgifthub.exception.HostUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Service pour extraire les métadonnées d'une URL (OpenGraph, meta tags, etc.)
+ * <p>
+ * Les résultats sont conservés dans un cache borné (éviction W-TinyLFU) indexé par l'URL canonique
+ * ({@link UrlCanonicalizer}) : un même produit collé plusieurs fois, sous n'importe quelle variante de lien,
+ * n'est téléchargé qu'une seule fois (à son URL canonique) pendant la durée de vie de l'entrée.
+ * Les échecs sont aussi mis en cache, avec une durée de vie plus courte.
+ * Les appels concurrents pour une même URL partagent un unique téléchargement en cours,
+ * exécuté par {@link MetadataFetchExecutor} hors des threads de requête.
+ * <p>
+ * Les extractions réussies sont aussi enregistrées en base ({@link UrlMetadataStore}) : après un redémarrage
+ * ou sur une autre instance, la ligne stockée est servie immédiatement, et rafraîchie en arrière-plan
+ * si elle est plus ancienne que {@code wishgifthub.metadata.store.revalidate-after} (stale-while-revalidate).
  */
+@Slf4j
 @Service
 public class MetadataExtractionService {
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MetadataFetchExecutor metadataFetchExecutor;
+
+    @Autowired
+    private MetadataHttpClient metadataHttpClient;
+
+    @Autowired
+    private MetadataExtractionLimits metadataExtractionLimits;
+
+    @Autowired
+    private ExtractionRuleEngine extractionRuleEngine;
+
+    @Autowired
+    private JsonLdExtractor jsonLdExtractor;
+
+    @Autowired
+    private UrlMetadataStore urlMetadataStore;
+
+    @Autowired
+    private HostCircuitBreaker hostCircuitBreaker;
+
+    @Autowired
+    private UrlCanonicalizer urlCanonicalizer;
+
+    @Autowired
+    private HostLatencyTracker hostLatencyTracker;
+
+    @Value("${wishgifthub.metadata.cache.max-size:2000}")
+    private long cacheMaxSize;
+
+    @Value("${wishgifthub.metadata.cache.ttl:6h}")
+    private Duration cacheTtl;
+
+    @Value("${wishgifthub.metadata.cache.failure-ttl:1m}")
+    private Duration cacheFailureTtl;
+
+    @Value("${wishgifthub.metadata.hedging.enabled:true}")
+    private boolean hedgingEnabled;
+
+    @Value("${wishgifthub.metadata.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    @Value("${wishgifthub.metadata.streaming.max-head-bytes:262144}")
+    private int maxHeadBytes;
+
+    // Sélecteurs communs à toutes les pages, compilés une seule fois
+    private static final Evaluator OG_TITLE = QueryParser.parse("meta[property=og:title]");
+    private static final Evaluator OG_DESCRIPTION = QueryParser.parse("meta[property=og:description]");
+    private static final Evaluator OG_IMAGE = QueryParser.parse("meta[property=og:image]");
+    private static final Evaluator META_DESCRIPTION = QueryParser.parse("meta[name=description]");
+    private static final Evaluator TWITTER_DESCRIPTION = QueryParser.parse("meta[name=twitter:description]");
+    private static final Evaluator TWITTER_IMAGE = QueryParser.parse("meta[name=twitter:image]");
+    private static final Evaluator META_PRICE_AMOUNT = QueryParser.parse("meta[name=product:price:amount]");
+    private static final Evaluator META_PRICE_CURRENCY = QueryParser.parse("meta[name=product:price:currency]");
+    private static final Evaluator META_PRICE_CURRENCY_NAME = QueryParser.parse("meta[name=priceCurrency]");
+    private static final Evaluator ITEMPROP_PRICE = QueryParser.parse("[itemprop=price]");
+    private static final Evaluator ITEMPROP_PRICE_CURRENCY = QueryParser.parse("[itemprop=priceCurrency]");
+    private static final Evaluator TITLE = QueryParser.parse("title");
+    private static final Evaluator IMG_WITH_SRC = QueryParser.parse("img[src]");
+
+    /**
+     * Balises marquant la fin de l'en-tête HTML (en minuscules, la comparaison ignore la casse)
+     */
+    private static final byte[][] HEAD_END_MARKERS = {
+            "</head".getBytes(StandardCharsets.US_ASCII),
+            "<body".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    private Cache<String, CachedMetadata> cache;
+
+    private final ConcurrentHashMap<String, CompletableFuture<CachedMetadata>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * URLs dont la ligne stockée est en cours de rafraîchissement en arrière-plan
+     */
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private Counter coalescedCounter;
+
+    private Counter headOnlyCounter;
+
+    private Counter fullParseCounter;
+
+    private Counter revalidationCounter;
+
+    private Counter notModifiedCounter;
+
+    private Counter hedgedCounter;
+
+    private Counter hedgeWinCounter;
+
+    /**
+     * Résultat d'extraction mis en cache : soit les métadonnées, soit le message d'erreur.
+     */
+    private record CachedMetadata(Map<String, String> metadata, String error) {
+        boolean isFailure() {
+            return error != null;
+        }
+    }
+
+    @PostConstruct
+    void initCache() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, CachedMetadata>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedMetadata value, long currentTime) {
+                        return (value.isFailure() ? cacheFailureTtl : cacheTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedMetadata value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedMetadata value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "metadata");
+        coalescedCounter = Counter.builder("metadata.fetch.coalesced")
+                .description("Appels d'extraction rattachés à un téléchargement déjà en cours")
+                .register(meterRegistry);
+        headOnlyCounter = Counter.builder("metadata.parse")
+                .tag("mode", "head")
+                .description("Extractions réalisées à partir de l'en-tête seul ou de la page complète")
+                .register(meterRegistry);
+        fullParseCounter = Counter.builder("metadata.parse")
+                .tag("mode", "full")
+                .description("Extractions réalisées à partir de l'en-tête seul ou de la page complète")
+                .register(meterRegistry);
+        revalidationCounter = Counter.builder("metadata.store.revalidations")
+                .description("Rafraîchissements en arrière-plan de métadonnées stockées trop anciennes")
+                .register(meterRegistry);
+        notModifiedCounter = Counter.builder("metadata.fetch.not-modified")
+                .description("Téléchargements conditionnels auxquels le site a répondu 304 (métadonnées stockées réutilisées)")
+                .register(meterRegistry);
+        hedgedCounter = Counter.builder("metadata.fetch.hedged")
+                .description("Requêtes de secours lancées car la première dépassait le p90 du site")
+                .register(meterRegistry);
+        hedgeWinCounter = Counter.builder("metadata.fetch.hedge.wins")
+                .description("Requêtes de secours ayant abouti avant la première")
+                .register(meterRegistry);
+    }
+
     /**
-     * Extrait les métadonnées d'une URL
+     * Extrait les métadonnées d'une URL, en passant par le cache.
+     * Bloque jusqu'à la fin du téléchargement : à réserver aux traitements qui n'ont pas de délai à respecter.
      */
     public Map<String, String> extractMetadata(String url) throws IOException {
-        Map<String, String> metadata = new HashMap<>();
+        try {
+            return extractMetadataAsync(url).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Extrait les métadonnées d'une URL, en passant par le cache.
+     * Le téléchargement éventuel s'exécute sur l'exécuteur dédié ; l'appelant choisit combien de temps attendre.
+     *
+     * @return les métadonnées, ou une erreur {@link IOException} si l'extraction a échoué
+     */
+    public CompletableFuture<Map<String, String>> extractMetadataAsync(String url) {
+        return urlCanonicalizer.canonicalizeAsync(url).thenCompose(key -> {
+            CachedMetadata cached = cache.getIfPresent(key);
+            CompletableFuture<CachedMetadata> result = cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : loadOnce(key, key);
+            return result.thenApply(MetadataExtractionService::unwrap);
+        });
+    }
+
+    /**
+     * Télécharge à nouveau la page sans passer par le cache, puis met à jour le cache et les données stockées.
+     * Si l'URL est déjà stockée, la requête est conditionnelle : une réponse 304 réutilise l'extraction stockée.
+     * Un téléchargement déjà en cours pour la même URL est partagé.
+     *
+     * @return les métadonnées à jour, ou une erreur {@link IOException} si l'extraction a échoué
+     */
+    public CompletableFuture<Map<String, String>> refreshMetadataAsync(String url) {
+        return urlCanonicalizer.canonicalizeAsync(url).thenCompose(key -> {
+            CompletableFuture<CachedMetadata> call = new CompletableFuture<>();
+            CompletableFuture<CachedMetadata> existing = inFlight.putIfAbsent(key, call);
+            if (existing != null) {
+                coalescedCounter.increment();
+                return existing.thenApply(MetadataExtractionService::unwrap);
+            }
+            fetchInto(key, key, call, () -> urlMetadataStore.find(key));
+            return call.thenApply(MetadataExtractionService::unwrap);
+        });
+    }
+
+    private static Map<String, String> unwrap(CachedMetadata entry) {
+        if (entry.isFailure()) {
+            throw new CompletionException(new IOException(entry.error()));
+        }
+        return entry.metadata();
+    }
+
+    /**
+     * Charge les métadonnées d'une URL en regroupant les appels concurrents :
+     * un seul téléchargement est lancé par clé, les autres appelants partagent son résultat.
+     */
+    private CompletableFuture<CachedMetadata> loadOnce(String key, String url) {
+        CompletableFuture<CachedMetadata> call = new CompletableFuture<>();
+        CompletableFuture<CachedMetadata> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return existing;
+        }
+
+        // Un autre appelant a pu terminer le chargement entre la lecture du cache et l'inscription
+        // (lecture via asMap() pour ne pas compter un second défaut de cache)
+        CachedMetadata cached = cache.asMap().get(key);
+        if (cached != null) {
+            inFlight.remove(key, call);
+            call.complete(cached);
+            return call;
+        }
+
+        // Ligne stockée en base : servie telle quelle, rafraîchie en arrière-plan si elle est ancienne
+        UrlMetadata stored = urlMetadataStore.find(key);
+        if (stored != null) {
+            CachedMetadata entry = new CachedMetadata(Collections.unmodifiableMap(UrlMetadataStore.toMetadata(stored)), null);
+            cache.put(key, entry);
+            inFlight.remove(key, call);
+            call.complete(entry);
+            if (urlMetadataStore.isStale(stored)) {
+                revalidate(key, url, stored);
+            }
+            return call;
+        }
+
+        fetchInto(key, url, call, () -> null);
+        return call;
+    }
+
+    /**
+     * Lance le téléchargement pour le compte de l'appelant inscrit dans {@code inFlight}, puis publie le résultat
+     * dans le cache et dans {@code call}.
+     * Comme pour {@link #revalidate}, un échec ne remplace pas une ligne stockée : le cache continue de servir ses
+     * métadonnées, et seul l'appelant du rafraîchissement reçoit l'échec (le rafraîchissement des prix ne doit pas
+     * réappliquer un ancien prix).
+     *
+     * @param stored ligne stockée dont les validateurs rendent la requête conditionnelle (lue sur l'exécuteur)
+     */
+    private void fetchInto(String key, String url, CompletableFuture<CachedMetadata> call, Supplier<UrlMetadata> stored) {
+        AtomicReference<UrlMetadata> storedRow = new AtomicReference<>();
+        Supplier<UrlMetadata> readStored = () -> {
+            UrlMetadata row = stored.get();
+            storedRow.set(row);
+            return row;
+        };
+        submitFetch(key, url, readStored).whenComplete((loaded, error) -> {
+            if (error == null && loaded.isFailure() && storedRow.get() != null) {
+                log.debug("Rafraîchissement des métadonnées de {} en échec, la version stockée reste servie", url);
+                cache.put(key, new CachedMetadata(
+                        Collections.unmodifiableMap(UrlMetadataStore.toMetadata(storedRow.get())), null));
+            } else if (error == null) {
+                cache.put(key, loaded);
+            }
+            inFlight.remove(key, call);
+            if (error == null) {
+                call.complete(loaded);
+            } else {
+                call.completeExceptionally(error instanceof CompletionException ce && ce.getCause() != null ? ce.getCause() : error);
+            }
+        });
+    }
+
+    /**
+     * Rafraîchit en arrière-plan une ligne stockée trop ancienne (un seul rafraîchissement par URL à la fois).
+     * En cas d'échec, les métadonnées stockées restent servies.
+     */
+    private void revalidate(String key, String url, UrlMetadata stored) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        revalidationCounter.increment();
+        submitFetch(key, url, () -> stored).whenComplete((loaded, error) -> {
+            if (error == null && !loaded.isFailure()) {
+                cache.put(key, loaded);
+            } else {
+                log.debug("Rafraîchissement des métadonnées de {} en échec, la version stockée reste servie", url);
+            }
+            revalidating.remove(key);
+        });
+    }
+
+    /**
+     * Soumet le téléchargement à l'exécuteur, sauf si le circuit du site est ouvert : l'échec est alors immédiat
+     * (et n'est pas mis en cache, pour que l'URL soit retentée dès la fermeture du circuit).
+     */
+    private CompletableFuture<CachedMetadata> submitFetch(String key, String url, Supplier<UrlMetadata> stored) {
+        try {
+            hostCircuitBreaker.acquire(url);
+        } catch (HostUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<CachedMetadata> primary = metadataFetchExecutor.submit(url, () -> load(key, url, stored.get(), true))
+                .whenComplete((loaded, error) -> {
+                    if (error != null) {
+                        // Téléchargement jamais lancé (file d'attente pleine) : rien à imputer au site
+                        hostCircuitBreaker.release(url);
+                    }
+                });
+        Duration hedgeDelay = hedgingEnabled ? hostLatencyTracker.hedgeDelay(url) : null;
+        return hedgeDelay != null ? hedge(key, url, stored, primary, hedgeDelay) : primary;
+    }
+
+    /**
+     * Requête de secours : si le premier téléchargement n'a pas abouti après le p90 observé pour le site, un second
+     * est lancé sans attendre l'échec du premier. Le premier résultat réussi est retenu ; si les deux échouent,
+     * le dernier échec est renvoyé. Un échec rapide du premier (avant le délai) est renvoyé sans requête de secours.
+     */
+    private CompletableFuture<CachedMetadata> hedge(String key, String url, Supplier<UrlMetadata> stored,
+                                                    CompletableFuture<CachedMetadata> primary, Duration delay) {
+        CompletableFuture<CachedMetadata> result = new CompletableFuture<>();
+        // Téléchargements lancés et pas encore terminés en échec
+        AtomicInteger pending = new AtomicInteger(1);
+        primary.whenComplete((loaded, error) -> settle(result, pending, loaded, error));
+        CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.isDone() || !pending.compareAndSet(1, 2)) {
+                return;
+            }
+            hedgedCounter.increment();
+            metadataFetchExecutor.submit(url, () -> load(key, url, stored.get(), false)).whenComplete((loaded, error) -> {
+                if (error == null && !loaded.isFailure() && !primary.isDone()) {
+                    hedgeWinCounter.increment();
+                }
+                settle(result, pending, loaded, error);
+            });
+        });
+        return result;
+    }
+
+    private static void settle(CompletableFuture<CachedMetadata> result, AtomicInteger pending, CachedMetadata loaded, Throwable error) {
+        if (error == null && !loaded.isFailure()) {
+            result.complete(loaded);
+        } else if (pending.decrementAndGet() == 0) {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(loaded);
+            }
+        }
+    }
+
+    /**
+     * Télécharge et extrait les métadonnées, en convertissant un échec réseau en résultat d'erreur.
+     * Un résultat réussi est enregistré en base ; l'issue du téléchargement alimente le disjoncteur du site
+     * (sauf pour une requête de secours, qui n'a pas pris de place auprès du disjoncteur) et la durée mesurée
+     * alimente les percentiles du site.
+     * Si la page n'a pas changé depuis la ligne stockée (304), cette ligne est réutilisée sans analyse.
+     */
+    private CachedMetadata load(String key, String url, UrlMetadata stored, boolean primary) {
+        long startedAt = System.nanoTime();
+        try {
+            Extraction extraction = fetchAndExtract(url, stored);
+            hostLatencyTracker.record(url, System.nanoTime() - startedAt);
+            if (primary) {
+                hostCircuitBreaker.onSuccess(url);
+            }
+            if (extraction.metadata() == null) {
+                notModifiedCounter.increment();
+                urlMetadataStore.markChecked(stored, extraction.etag(), extraction.lastModified());
+                return new CachedMetadata(Collections.unmodifiableMap(UrlMetadataStore.toMetadata(stored)), null);
+            }
+            urlMetadataStore.save(key, extraction.metadata(), extraction.etag(), extraction.lastModified());
+            return new CachedMetadata(Collections.unmodifiableMap(extraction.metadata()), null);
+        } catch (IOException e) {
+            if (e instanceof HttpTimeoutException || e.getCause() instanceof HttpTimeoutException) {
+                // Durée minorée (le site n'a pas répondu à temps), mais elle doit peser dans les percentiles
+                hostLatencyTracker.record(url, System.nanoTime() - startedAt);
+            }
+            if (primary) {
+                hostCircuitBreaker.onFailure(url, e);
+            }
+            return new CachedMetadata(null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Télécharge la page et en extrait les métadonnées.
+     * <p>
+     * En mode streaming, seul l'en-tête {@code <head>} est lu dans un premier temps : s'il fournit déjà
+     * tous les champs (tags OpenGraph et prix), le transfert est interrompu sans télécharger le corps.
+     * Sinon la lecture reprend là où elle s'était arrêtée et la page complète est analysée.
+     *
+     * @param stored ligne stockée de l'URL (null si aucune) : ses validateurs sont envoyés pour une requête conditionnelle
+     */
+    private Extraction fetchAndExtract(String url, UrlMetadata stored) throws IOException {
+        try (MetadataHttpClient.Page page = stored != null
+                ? metadataHttpClient.get(url, stored.getEtag(), stored.getLastModified())
+                : metadataHttpClient.get(url);
+             InputStream body = metadataExtractionLimits.limit(page.body())) {
+            if (page.notModified()) {
+                return new Extraction(null, page);
+            }
+            try {
+                long deadline = metadataExtractionLimits.deadline();
+                String baseUri = page.uri().toString();
+                if (!streamingEnabled) {
+                    fullParseCounter.increment();
+                    return new Extraction(extractFromDocument(parse(body, page.charset(), baseUri, deadline), deadline), page);
+                }
+
+                HeadPrefix prefix = readHead(body, maxHeadBytes);
+                if (prefix.complete()) {
+                    Document head = parse(new ByteArrayInputStream(prefix.bytes(), 0, prefix.length()), page.charset(), baseUri, deadline);
+                    if (isHeadSufficient(head)) {
+                        // La fermeture de la page (try-with-resources) interrompt le transfert du corps
+                        headOnlyCounter.increment();
+                        return new Extraction(extractFromDocument(head, deadline), page);
+                    }
+                }
+
+                fullParseCounter.increment();
+                InputStream whole = new SequenceInputStream(
+                        new ByteArrayInputStream(prefix.bytes(), 0, prefix.length()), body);
+                return new Extraction(extractFromDocument(parse(whole, page.charset(), baseUri, deadline), deadline), page);
+            } catch (IOException e) {
+                if (page.timedOut()) {
+                    HttpTimeoutException timeout = new HttpTimeoutException("Le site " + page.uri().getHost() + " met trop de temps à envoyer la page");
+                    timeout.initCause(e);
+                    throw timeout;
+                }
+                throw e;
+            }
+        }
+    }
 
-        // Télécharger et parser la page HTML avec des headers plus complets pour éviter les blocages
-        Document doc = Jsoup.connect(url)
-                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/131.0.0.0 Safari/537.36")
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                .header("Accept-Language", "fr-FR,fr;q=0.9,en-US;q=0.8,en;q=0.7")
-                .header("Accept-Encoding", "gzip, deflate, br")
-                .header("Connection", "keep-alive")
-                .header("Upgrade-Insecure-Requests", "1")
-                .referrer("https://www.google.com/")
-                .timeout(15000)
-                .followRedirects(true)
-                .get();
-
-        // Extraire le titre (priorité: og:title, puis title tag, puis sélecteurs spécifiques)
-        String title = extractOpenGraphTag(doc, "og:title");
-        if (title == null || title.isEmpty() || title.equals("Amazon.fr")) {
-            // Essayer les sélecteurs spécifiques Amazon
-            Element amazonTitle = doc.selectFirst("#productTitle, h1.product-title, #title");
-            if (amazonTitle != null) {
-                title = amazonTitle.text().trim();
-            }
-        }
-        if (title == null || title.isEmpty() || title.equals("Amazon.fr")) {
-            Element titleElement = doc.selectFirst("title");
+    /**
+     * Métadonnées extraites d'une page, avec les validateurs HTTP de la réponse.
+     * Les métadonnées valent null si le site a répondu 304 (page inchangée).
+     */
+    private record Extraction(Map<String, String> metadata, String etag, String lastModified) {
+        Extraction(Map<String, String> metadata, MetadataHttpClient.Page page) {
+            this(metadata, page.etag(), page.lastModified());
+        }
+    }
+
+    /**
+     * Parse le flux HTML en limitant le nombre de nœuds et la durée de l'analyse
+     */
+    private Document parse(InputStream in, String charset, String baseUri, long deadline) throws IOException {
+        return metadataExtractionLimits.parse(in, charset, baseUri, deadline);
+    }
+
+    /**
+     * Début de page lu jusqu'à la fin de l'en-tête HTML (ou jusqu'à la limite de lecture)
+     */
+    private record HeadPrefix(byte[] bytes, int length, boolean complete) {
+    }
+
+    /**
+     * Lit le flux jusqu'à la fermeture de {@code <head>} (ou l'ouverture de {@code <body>}).
+     * La recherche se fait sur les octets, ce qui convient aux encodages compatibles ASCII (UTF-8, ISO-8859-x...).
+     */
+    private static HeadPrefix readHead(InputStream in, int maxBytes) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        int length = 0;
+        while (length < maxBytes) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxBytes));
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            int scanFrom = Math.max(0, length - HEAD_END_MARKERS[0].length);
+            length += read;
+            if (containsHeadEnd(buffer, scanFrom, length)) {
+                return new HeadPrefix(buffer, length, true);
+            }
+        }
+        return new HeadPrefix(buffer, length, false);
+    }
+
+    private static boolean containsHeadEnd(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] != '<') {
+                continue;
+            }
+            for (byte[] marker : HEAD_END_MARKERS) {
+                if (regionMatchesIgnoreCase(buffer, i, to, marker)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatchesIgnoreCase(byte[] buffer, int offset, int limit, byte[] marker) {
+        if (offset + marker.length > limit) {
+            return false;
+        }
+        for (int j = 0; j < marker.length; j++) {
+            if (Character.toLowerCase(buffer[offset + j]) != marker[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vérifie que l'en-tête fournit tous les champs avec leur source prioritaire :
+     * l'analyse de la page complète donnerait alors exactement le même résultat.
+     */
+    private boolean isHeadSufficient(Document head) {
+        String title = extractOpenGraphTag(head, OG_TITLE);
+        return title != null && !title.isEmpty()
+                && !extractionRuleEngine.forHost(hostOf(head.location())).isIgnoredTitle(title)
+                && hasText(extractOpenGraphTag(head, OG_DESCRIPTION))
+                && hasText(extractOpenGraphTag(head, OG_IMAGE))
+                && (hasText(extractMetaTag(head, META_PRICE_AMOUNT)) || hasJsonLdPrice(head));
+    }
+
+    private boolean hasJsonLdPrice(Document head) {
+        JsonLdExtractor.JsonLdProduct product = jsonLdExtractor.extract(head);
+        return product != null && product.formattedPrice() != null;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    /**
+     * Extrait les métadonnées d'un document HTML déjà parsé.
+     * Les données structurées JSON-LD sont lues avant les sélecteurs CSS : ceux-ci ne parcourent le document
+     * que pour les champs que ni les meta tags ni le JSON-LD ne fournissent.
+     * Une fois l'échéance dépassée, les champs restants sont laissés vides.
+     */
+    private Map<String, String> extractFromDocument(Document doc, long deadline) {
+        ExtractionRuleEngine.SiteRules site = extractionRuleEngine.forHost(hostOf(doc.location()));
+        JsonLdExtractor.JsonLdProduct product = jsonLdExtractor.extract(doc);
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("title", "");
+        metadata.put("description", "");
+        metadata.put("image", "");
+        metadata.put("price", "");
+
+        // Extraire le titre (priorité: og:title, puis JSON-LD, puis sélecteurs du site et communs, puis title tag)
+        String title = extractOpenGraphTag(doc, OG_TITLE);
+        if ((title == null || title.isEmpty() || site.isIgnoredTitle(title)) && product != null && product.name() != null) {
+            title = product.name();
+        }
+        if (title == null || title.isEmpty() || site.isIgnoredTitle(title)) {
+            Element siteTitle = selectFirst(doc, site.title(), extractionRuleEngine.defaults().title());
+            if (siteTitle != null) {
+                title = siteTitle.text().trim();
+            }
+        }
+        if (title == null || title.isEmpty() || site.isIgnoredTitle(title)) {
+            Element titleElement = doc.selectFirst(TITLE);
             title = titleElement != null ? titleElement.text() : "";
-            // Nettoyer le titre Amazon (enlever " : Amazon.fr" à la fin)
-            if (title.contains(" : Amazon")) {
-                title = title.substring(0, title.indexOf(" : Amazon")).trim();
+            // Nettoyer le titre (ex: enlever " : Amazon.fr" à la fin)
+            if (site.titleCleanup() != null) {
+                title = site.titleCleanup().matcher(title).replaceFirst("").trim();
             }
         }
         metadata.put("title", title);
+        if (isExpired(deadline)) {
+            return metadata;
+        }
 
-        // Extraire la description (priorité: og:description, puis meta description, puis contenu de la page)
-        String description = extractOpenGraphTag(doc, "og:description");
+        // Extraire la description (priorité: og:description, puis meta description, puis JSON-LD, puis contenu de la page)
+        String description = extractOpenGraphTag(doc, OG_DESCRIPTION);
         if (description == null || description.isEmpty()) {
-            description = extractMetaTag(doc, "description");
+            description = extractMetaTag(doc, META_DESCRIPTION);
         }
         if (description == null || description.isEmpty()) {
-            description = extractMetaTag(doc, "twitter:description");
+            description = extractMetaTag(doc, TWITTER_DESCRIPTION);
+        }
+        if ((description == null || description.isEmpty()) && product != null) {
+            description = product.description();
         }
         if (description == null || description.isEmpty()) {
-            // Essayer les sélecteurs spécifiques Amazon
-            Element amazonDesc = doc.selectFirst("#feature-bullets, #productDescription, .product-description, [data-feature-name='featurebullets']");
-            if (amazonDesc != null) {
-                description = amazonDesc.text().trim();
+            // Essayer les sélecteurs du site, puis les sélecteurs communs
+            Element siteDesc = selectFirst(doc, site.description(), extractionRuleEngine.defaults().description());
+            if (siteDesc != null) {
+                description = siteDesc.text().trim();
                 // Limiter la longueur de la description
                 if (description.length() > 500) {
                     description = description.substring(0, 497) + "...";
@@ -73,114 +662,102 @@ public class MetadataExtractionService {
             }
         }
         metadata.put("description", description != null ? description : "");
+        if (isExpired(deadline)) {
+            return metadata;
+        }
 
-        // Extraire l'image (priorité: og:image, puis twitter:image, puis sélecteurs spécifiques)
-        String image = extractOpenGraphTag(doc, "og:image");
+        // Extraire l'image (priorité: og:image, puis twitter:image, puis JSON-LD, puis sélecteurs spécifiques)
+        String image = extractOpenGraphTag(doc, OG_IMAGE);
         if (image == null || image.isEmpty()) {
-            image = extractMetaTag(doc, "twitter:image");
+            image = extractMetaTag(doc, TWITTER_IMAGE);
+        }
+        if ((image == null || image.isEmpty()) && product != null) {
+            image = product.image();
         }
         if (image == null || image.isEmpty()) {
-            image = extractProductImage(doc);
+            image = extractProductImage(doc, site);
         }
         metadata.put("image", image != null ? image : "");
+        if (isExpired(deadline)) {
+            return metadata;
+        }
 
         // Extraire le prix (recherche dans le contenu)
-        String price = extractPrice(doc);
+        String price = extractPrice(doc, site, product);
         metadata.put("price", price != null ? price : "");
 
         return metadata;
     }
 
+    private boolean isExpired(long deadline) {
+        if (metadataExtractionLimits.isExpired(deadline)) {
+            metadataExtractionLimits.recordTimeTruncation();
+            return true;
+        }
+        return false;
+    }
+
     /**
-     * Extrait un tag OpenGraph
+     * Extrait un tag OpenGraph (sélecteur précompilé, voir {@link #OG_TITLE})
      */
-    private String extractOpenGraphTag(Document doc, String property) {
-        Element element = doc.selectFirst("meta[property=" + property + "]");
+    private String extractOpenGraphTag(Document doc, Evaluator property) {
+        Element element = doc.selectFirst(property);
         return element != null ? element.attr("content") : null;
     }
 
     /**
-     * Extrait un meta tag standard
+     * Extrait un meta tag standard (sélecteur précompilé, voir {@link #META_DESCRIPTION})
      */
-    private String extractMetaTag(Document doc, String name) {
-        Element element = doc.selectFirst("meta[name=" + name + "]");
+    private String extractMetaTag(Document doc, Evaluator name) {
+        Element element = doc.selectFirst(name);
         return element != null ? element.attr("content") : null;
     }
 
     /**
-     * Extrait l'image d'un produit en cherchant dans les sélecteurs courants des sites e-commerce
+     * Premier élément correspondant au premier sélecteur qui trouve quelque chose
      */
-    private String extractProductImage(Document doc) {
-        // 1. Essayer les sélecteurs Amazon spécifiques avec data-old-hires (meilleure qualité)
-        String[] amazonSelectorsWithData = {
-            "#landingImage",
-            "#imgBlkFront",
-            "#main-image",
-            ".a-dynamic-image"
-        };
-
-        for (String selector : amazonSelectorsWithData) {
-            Element amazonImg = doc.selectFirst(selector);
-            if (amazonImg != null) {
-                // Amazon peut stocker l'URL de la grande image dans data-old-hires
-                String dataHires = amazonImg.attr("data-old-hires");
-                if (dataHires != null && !dataHires.isEmpty() && isValidImageUrl(dataHires)) {
-                    return dataHires;
-                }
-
-                // Ou dans data-a-dynamic-image (JSON avec plusieurs URLs)
-                String dataDynamic = amazonImg.attr("data-a-dynamic-image");
-                if (dataDynamic != null && !dataDynamic.isEmpty()) {
-                    try {
-                        String firstUrl = dataDynamic.substring(dataDynamic.indexOf("\"") + 1, dataDynamic.indexOf("\"", dataDynamic.indexOf("\"") + 1));
-                        if (firstUrl.startsWith("http") && isValidImageUrl(firstUrl)) {
-                            return firstUrl;
-                        }
-                    } catch (Exception e) {
-                        // Ignorer les erreurs de parsing
-                    }
-                }
-
-                // Fallback sur l'attribut src
-                String src = amazonImg.attr("abs:src");
-                if (src != null && !src.isEmpty() && isValidImageUrl(src)) {
-                    return src;
+    /**
+     * Premier élément trouvé par les sélecteurs du site, puis par ceux de la section {@code defaults}
+     */
+    private static Element selectFirst(Document doc, List<Evaluator> siteSelectors, List<Evaluator> defaultSelectors) {
+        for (List<Evaluator> selectors : List.of(siteSelectors, defaultSelectors)) {
+            for (Evaluator selector : selectors) {
+                Element element = doc.selectFirst(selector);
+                if (element != null) {
+                    return element;
                 }
             }
         }
+        return null;
+    }
 
-        // Chercher dans les sélecteurs courants des sites e-commerce
-        String[] selectors = {
-            "img.product-image",
-            "img[itemprop=image]",
-            ".product-main-image img",
-            ".product-image-wrapper img",
-            "#product-image",
-            ".gallery-image img",
-            "[data-testid=product-image]",
-            "img[class*=product]",
-            "img[class*=Product]"
-        };
-
-        for (String selector : selectors) {
-            Element img = doc.selectFirst(selector);
-            if (img != null) {
-                // Chercher d'abord dans data-src (lazy loading)
-                String dataSrc = img.attr("data-src");
-                if (dataSrc != null && !dataSrc.isEmpty() && dataSrc.startsWith("http") && isValidImageUrl(dataSrc)) {
-                    return dataSrc;
-                }
+    private static String hostOf(String url) {
+        try {
+            return URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
-                // Puis dans src
-                String src = img.attr("abs:src");
-                if (src != null && !src.isEmpty() && !src.contains("placeholder") && !src.contains("loading") && isValidImageUrl(src)) {
-                    return src;
+    /**
+     * Extrait l'image d'un produit en cherchant dans les sélecteurs du site, puis dans les sélecteurs
+     * courants des sites e-commerce
+     */
+    private String extractProductImage(Document doc, ExtractionRuleEngine.SiteRules site) {
+        for (List<Evaluator> selectors : List.of(site.image(), extractionRuleEngine.defaults().image())) {
+            for (Evaluator selector : selectors) {
+                Element img = doc.selectFirst(selector);
+                if (img != null) {
+                    String src = imageFromElement(img);
+                    if (src != null) {
+                        return src;
+                    }
                 }
             }
         }
 
         // Fallback : chercher la première image qui semble être une image de produit (pas trop petite)
-        for (Element img : doc.select("img[src]")) {
+        for (Element img : doc.select(IMG_WITH_SRC)) {
             String src = img.attr("abs:src");
             String width = img.attr("width");
             String height = img.attr("height");
@@ -205,6 +782,44 @@ public class MetadataExtractionService {
         return null;
     }
 
+    /**
+     * URL d'image portée par un élément : grande image (data-old-hires, data-a-dynamic-image),
+     * image chargée à la demande (data-src), puis src
+     */
+    private String imageFromElement(Element img) {
+        // Amazon peut stocker l'URL de la grande image dans data-old-hires
+        String dataHires = img.attr("data-old-hires");
+        if (!dataHires.isEmpty() && isValidImageUrl(dataHires)) {
+            return dataHires;
+        }
+
+        // Ou dans data-a-dynamic-image (JSON avec plusieurs URLs)
+        String dataDynamic = img.attr("data-a-dynamic-image");
+        if (!dataDynamic.isEmpty()) {
+            try {
+                String firstUrl = dataDynamic.substring(dataDynamic.indexOf("\"") + 1, dataDynamic.indexOf("\"", dataDynamic.indexOf("\"") + 1));
+                if (firstUrl.startsWith("http") && isValidImageUrl(firstUrl)) {
+                    return firstUrl;
+                }
+            } catch (Exception e) {
+                // Ignorer les erreurs de parsing
+            }
+        }
+
+        // Chercher ensuite dans data-src (lazy loading)
+        String dataSrc = img.attr("data-src");
+        if (!dataSrc.isEmpty() && dataSrc.startsWith("http") && isValidImageUrl(dataSrc)) {
+            return dataSrc;
+        }
+
+        // Puis dans src
+        String src = img.attr("abs:src");
+        if (!src.isEmpty() && !src.contains("placeholder") && !src.contains("loading") && isValidImageUrl(src)) {
+            return src;
+        }
+        return null;
+    }
+
     /**
      * Vérifie qu'une URL se termine par une extension d'image valide
      */
@@ -244,117 +859,90 @@ public class MetadataExtractionService {
      * Tente d'extraire un prix depuis la page
      * Cherche des patterns communs de prix (€, EUR, $, USD, etc.)
      */
-    private String extractPrice(Document doc) {
+    private String extractPrice(Document doc, ExtractionRuleEngine.SiteRules site, JsonLdExtractor.JsonLdProduct product) {
         // Chercher dans les meta tags spécifiques e-commerce
-        String priceFromMeta = extractMetaTag(doc, "product:price:amount");
+        String priceFromMeta = extractMetaTag(doc, META_PRICE_AMOUNT);
         if (priceFromMeta != null && !priceFromMeta.isEmpty()) {
-            String currency = extractMetaTag(doc, "product:price:currency");
-            return priceFromMeta + (currency != null ? " " + currency : "");
-        }
-
-        // Sélecteurs spécifiques Amazon
-        String[] amazonSelectors = {
-            ".a-price .a-offscreen",           // Prix principal Amazon
-            "#priceblock_ourprice",             // Ancien sélecteur Amazon
-            "#priceblock_dealprice",            // Prix en promotion
-            ".a-price-whole",                   // Partie entière du prix
-            "span.priceToPay",                  // Nouveau format Amazon
-            ".a-section.a-spacing-small .a-price .a-offscreen",  // Prix dans la section prix
-            "#corePrice_feature_div .a-offscreen",  // Nouvelle structure Amazon
-            "[data-a-color=price] .a-offscreen"
-        };
+            String currency = extractMetaTag(doc, META_PRICE_CURRENCY);
+            String metaPrice = cleanPrice(priceFromMeta + (currency != null ? " " + currency : ""));
+            if (metaPrice != null) {
+                return metaPrice;
+            }
+        }
 
-        for (String selector : amazonSelectors) {
-            Element priceElement = doc.selectFirst(selector);
-            if (priceElement != null) {
-                String priceText = priceElement.text();
-                if (priceText != null && !priceText.isEmpty()) {
-                    String cleaned = cleanPrice(priceText);
-                    if (cleaned != null && !cleaned.isEmpty()) {
-                        return cleaned;
-                    }
-                }
+        // Puis dans les données structurées JSON-LD (offers.price / priceCurrency)
+        if (product != null && product.formattedPrice() != null) {
+            String jsonLdPrice = cleanPrice(product.formattedPrice());
+            if (jsonLdPrice != null) {
+                return jsonLdPrice;
             }
         }
 
+        // Sélecteurs spécifiques au site
+        String sitePrice = priceFromSelectors(doc, site.price());
+        if (sitePrice != null) {
+            return sitePrice;
+        }
+
         // Chercher dans les balises avec itemprop=price (standard Schema.org)
-        Element itemPropPrice = doc.selectFirst("[itemprop=price]");
+        Element itemPropPrice = doc.selectFirst(ITEMPROP_PRICE);
         if (itemPropPrice != null) {
             String content = itemPropPrice.attr("content");
-            if (content != null && !content.isEmpty()) {
-                String currency = extractMetaTag(doc, "priceCurrency");
+            if (!content.isEmpty()) {
+                String currency = extractMetaTag(doc, META_PRICE_CURRENCY_NAME);
                 if (currency == null) {
-                    Element currencyElement = doc.selectFirst("[itemprop=priceCurrency]");
+                    Element currencyElement = doc.selectFirst(ITEMPROP_PRICE_CURRENCY);
                     currency = currencyElement != null ? currencyElement.attr("content") : null;
                 }
-                return content + (currency != null ? " " + currency : "");
+                return cleanPrice(content + (currency != null ? " " + currency : ""));
             }
 
             String priceText = itemPropPrice.text();
-            if (priceText != null && !priceText.isEmpty()) {
+            if (!priceText.isEmpty()) {
                 return cleanPrice(priceText);
             }
         }
 
         // Chercher dans les balises avec classes/attributs courants
-        String[] genericSelectors = {
-            ".price",
-            ".product-price",
-            "[class*=price]",
-            "[data-price]",
-            ".sale-price",
-            ".current-price"
-        };
+        ExtractionRuleEngine.SiteRules defaults = extractionRuleEngine.defaults();
+        String genericPrice = priceFromSelectors(doc, defaults.price());
+        if (genericPrice != null) {
+            return genericPrice;
+        }
+
+        // Chercher dans le texte avec regex (patterns de prix communs, précompilés)
+        Pattern pricePattern = site.pricePattern() != null ? site.pricePattern() : defaults.pricePattern();
+        if (pricePattern != null) {
+            String bodyText = metadataExtractionLimits.boundedText(doc.body());
+            Matcher matcher = pricePattern.matcher(bodyText);
+            if (matcher.find()) {
+                return cleanPrice(matcher.group());
+            }
+        }
 
-        for (String selector : genericSelectors) {
+        return null;
+    }
+
+    private String priceFromSelectors(Document doc, List<Evaluator> selectors) {
+        for (Evaluator selector : selectors) {
             Element priceElement = doc.selectFirst(selector);
             if (priceElement != null) {
-                String priceText = priceElement.text();
-                String cleaned = cleanPrice(priceText);
+                String cleaned = cleanPrice(priceElement.text());
                 if (cleaned != null && !cleaned.isEmpty()) {
                     return cleaned;
                 }
             }
         }
-
-        // Chercher dans le texte avec regex (patterns de prix communs)
-        String bodyText = doc.body().text();
-        String pricePattern = "(?:€|EUR|\\$|USD)\\s*([0-9]+[,.]?[0-9]*)|([0-9]+[,.]?[0-9]*)\\s*(?:€|EUR|\\$|USD)";
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(pricePattern);
-        java.util.regex.Matcher matcher = pattern.matcher(bodyText);
-        if (matcher.find()) {
-            return cleanPrice(matcher.group());
-        }
-
         return null;
     }
 
     /**
-     * Nettoie et normalise un prix extrait
+     * Normalise un prix extrait (« 1 299,99 € » -> « 1299.99 € »), voir {@link PriceParser}
+     *
+     * @return le prix normalisé, ou null si le texte ne contient aucun montant
      */
-    private String cleanPrice(String priceText) {
-        if (priceText == null || priceText.isEmpty()) {
-            return null;
-        }
-
-        // Supprimer les espaces invisibles et normaliser
-        priceText = priceText.trim().replaceAll("\\s+", " ");
-
-        // Garder seulement les chiffres, virgules, points, espaces et symboles de devise
-        String cleaned = priceText.replaceAll("[^0-9.,€$£¥\\s]", "").trim();
-
-        // Si le prix ne contient pas de symbole de devise, essayer de le trouver dans le texte original
-        if (!cleaned.matches(".*[€$£¥].*")) {
-            if (priceText.contains("EUR") || priceText.contains("€")) {
-                cleaned += " €";
-            } else if (priceText.contains("USD") || priceText.contains("$")) {
-                cleaned += " $";
-            } else if (priceText.contains("GBP") || priceText.contains("£")) {
-                cleaned += " £";
-            }
-        }
-
-        return cleaned.isEmpty() ? null : cleaned;
+    private static String cleanPrice(String priceText) {
+        PriceParser.ParsedPrice parsed = PriceParser.parse(priceText);
+        return parsed != null ? parsed.format() : null;
     }
 }
-
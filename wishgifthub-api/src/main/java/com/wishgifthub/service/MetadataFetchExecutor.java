@@ -0,0 +1,141 @@
+package com.wishgifthub.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exécuteur dédié aux téléchargements de pages externes (extraction de métadonnées).
+ * <p>
+ * Chaque téléchargement s'exécute sur un thread virtuel, hors du pool de requêtes Tomcat.
+ * Le nombre de téléchargements simultanés est borné globalement et par hôte, afin qu'un site lent
+ * ne puisse ni saturer l'application ni être sollicité trop agressivement.
+ */
+@Slf4j
+@Service
+public class MetadataFetchExecutor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wishgifthub.metadata.fetch.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${wishgifthub.metadata.fetch.max-per-host:4}")
+    private int maxPerHost;
+
+    @Value("${wishgifthub.metadata.fetch.queue-timeout:10s}")
+    private Duration queueTimeout;
+
+    private ExecutorService executor;
+
+    private Semaphore globalPermits;
+
+    /**
+     * Sémaphores par hôte. Les valeurs sont faibles : un sémaphore disparaît dès qu'aucune tâche ne le référence.
+     */
+    private LoadingCache<String, Semaphore> hostPermits;
+
+    private final AtomicInteger activeFetches = new AtomicInteger();
+
+    private Timer queueTimer;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("metadata-fetch-", 0).factory());
+        globalPermits = new Semaphore(maxConcurrent, true);
+        hostPermits = Caffeine.newBuilder()
+                .weakValues()
+                .build(host -> new Semaphore(maxPerHost, true));
+
+        queueTimer = Timer.builder("metadata.fetch.queue")
+                .description("Temps d'attente d'un téléchargement avant obtention des permis global et par hôte")
+                .register(meterRegistry);
+        Gauge.builder("metadata.fetch.active", activeFetches, AtomicInteger::get)
+                .description("Téléchargements de pages externes en cours")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Soumet un téléchargement vers l'URL donnée. La tâche attend les permis de son hôte puis le permis global
+     * (au plus {@code queue-timeout}) avant de s'exécuter.
+     *
+     * @param url  URL cible, utilisée pour déterminer l'hôte
+     * @param task tâche à exécuter
+     * @return le résultat de la tâche, ou une erreur {@link IOException} si elle n'a pas pu démarrer à temps
+     */
+    public <T> CompletableFuture<T> submit(String url, Callable<T> task) {
+        String host = hostOf(url);
+        long enqueuedAt = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return runWithPermits(host, task, enqueuedAt);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private <T> T runWithPermits(String host, Callable<T> task, long enqueuedAt) throws Exception {
+        Semaphore hostSemaphore = hostPermits.get(host);
+        long deadline = enqueuedAt + queueTimeout.toNanos();
+
+        if (!hostSemaphore.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            queueTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            throw new IOException("Trop de requêtes en attente vers " + host + ", réessayez dans quelques instants");
+        }
+        try {
+            if (!globalPermits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                queueTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                throw new IOException("Trop de requêtes d'extraction en cours, réessayez dans quelques instants");
+            }
+            queueTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            activeFetches.incrementAndGet();
+            try {
+                return task.call();
+            } finally {
+                activeFetches.decrementAndGet();
+                globalPermits.release();
+            }
+        } finally {
+            hostSemaphore.release();
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
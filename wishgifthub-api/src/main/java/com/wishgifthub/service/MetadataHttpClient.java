@@ -0,0 +1,448 @@
+package com.wishgifthub.service;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.util.Native;
+import com.wishgifthub.exception.HttpStatusException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.brotli.dec.BrotliInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Client HTTP partagé pour le téléchargement des pages produit et de leurs images.
+ * <p>
+ * Une seule instance de {@link HttpClient} est utilisée pour toute l'application : les connexions
+ * (TCP + TLS) sont conservées et réutilisées d'une extraction à l'autre, et HTTP/2 est négocié quand
+ * le site le permet. La résolution DNS profite du cache de la JVM, dont la durée est réglée
+ * au lancement (voir {@code JAVA_OPTS} dans le Dockerfile).
+ * <p>
+ * Seuls les encodages que le client sait décompresser sont annoncés : Brotli, gzip et deflate, plus Zstandard
+ * si sa bibliothèque native se charge sur la plateforme.
+ */
+@Slf4j
+@Service
+public class MetadataHttpClient {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/131.0.0.0 Safari/537.36";
+
+    private static final int MAX_IMAGE_REDIRECTS = 5;
+
+    @Value("${wishgifthub.metadata.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${wishgifthub.metadata.http.read-timeout:30s}")
+    private Duration readTimeout;
+
+    @Value("${wishgifthub.metadata.http.zstd-enabled:true}")
+    private boolean zstdEnabled;
+
+    @Value("${wishgifthub.images.allow-private-addresses:false}")
+    private boolean allowPrivateImageAddresses;
+
+    private HttpClient httpClient;
+
+    /**
+     * Client des images : les redirections sont suivies une à une pour vérifier l'adresse de chaque étape
+     */
+    private HttpClient imageHttpClient;
+
+    /**
+     * Décompression Zstandard disponible (activée et bibliothèque native chargée)
+     */
+    private boolean zstdAvailable;
+
+    /**
+     * Valeur de l'en-tête Accept-Encoding
+     */
+    private String acceptEncoding;
+
+    /**
+     * Ferme les réponses dont la lecture dépasse {@code read-timeout} (le délai de {@link HttpRequest}
+     * ne couvre que la réception des en-têtes).
+     */
+    private ScheduledExecutorService readWatchdog;
+
+    @PostConstruct
+    void init() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+        imageHttpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(connectTimeout)
+                .build();
+        readWatchdog = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("metadata-http-watchdog")
+                .daemon(true)
+                .factory());
+        zstdAvailable = zstdEnabled && loadZstd();
+        acceptEncoding = zstdAvailable ? "br, zstd, gzip, deflate" : "br, gzip, deflate";
+    }
+
+    private static boolean loadZstd() {
+        try {
+            Native.load();
+            return true;
+        } catch (LinkageError | RuntimeException e) {
+            log.info("Décompression Zstandard indisponible sur cette plateforme : {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        readWatchdog.shutdownNow();
+        httpClient.close();
+        imageHttpClient.close();
+    }
+
+    /**
+     * Télécharge une page HTML. Le corps est renvoyé décompressé, sous forme de flux à fermer après lecture.
+     *
+     * @param url URL de la page
+     * @return la page ouverte
+     * @throws IOException si le site est injoignable, répond en erreur ou renvoie autre chose que du HTML
+     */
+    public Page get(String url) throws IOException {
+        return get(url, null, null);
+    }
+
+    /**
+     * Télécharge une page déjà connue, en requête conditionnelle : les validateurs de la réponse précédente sont
+     * envoyés ({@code If-None-Match}, {@code If-Modified-Since}). Si le site répond 304, la page renvoyée a un corps vide
+     * (voir {@link Page#notModified()}) et rien n'est transféré.
+     *
+     * @param etag         ETag de la réponse précédente (null si inconnu)
+     * @param lastModified Last-Modified de la réponse précédente (null si inconnu)
+     */
+    public Page get(String url, String etag, String lastModified) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("URL invalide : " + url, e);
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
+                .header("Accept-Language", "fr-FR,fr;q=0.9,en-US;q=0.8,en;q=0.7")
+                .header("Accept-Encoding", acceptEncoding)
+                .header("Upgrade-Insecure-Requests", "1")
+                .header("Referer", "https://www.google.com/");
+        if (etag != null && !etag.isEmpty()) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null && !lastModified.isEmpty()) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+        Opened opened = send(httpClient, uri, builder);
+        Page page = opened.page();
+        HttpHeaders headers = opened.headers();
+        try {
+            if (page.notModified()) {
+                // Rien à lire : la réponse est libérée tout de suite
+                page.close();
+                return page.withBody(InputStream.nullInputStream());
+            }
+            if (page.status() >= 400) {
+                throw new HttpStatusException(page.status(), "Erreur HTTP " + page.status() + " lors du téléchargement de la page");
+            }
+            String contentType = headers.firstValue("Content-Type").orElse("").toLowerCase(Locale.ROOT);
+            if (!contentType.isEmpty() && !contentType.startsWith("text/") && !contentType.contains("xml")) {
+                throw new IOException("Type de contenu non supporté : " + contentType);
+            }
+            return page.withBody(decode(page.body(), headers));
+        } catch (IOException e) {
+            page.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Télécharge une image. Seuls les formats que {@link javax.imageio.ImageIO} sait lire sont demandés
+     * (JPEG, PNG, GIF), et aucun Referer n'est envoyé : les CDN qui bloquent les liens depuis d'autres sites
+     * acceptent les requêtes sans Referer.
+     * <p>
+     * L'URL vient d'un souhait saisi par un utilisateur : l'adresse de chaque étape (redirections comprises) est
+     * résolue et refusée si elle n'est pas publique (boucle locale, réseau privé, lien local), pour que l'API ne
+     * serve pas de relais vers le réseau interne. Le client HTTP réutilise ensuite la résolution mise en cache
+     * par la JVM.
+     *
+     * @return l'image ouverte, sous forme de flux à fermer après lecture
+     * @throws IOException si le site est injoignable ou non public, répond en erreur ou renvoie autre chose qu'une image
+     */
+    public Page getImage(String url) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("URL invalide : " + url, e);
+        }
+
+        Opened opened;
+        for (int redirects = 0; ; redirects++) {
+            checkPublicAddress(uri);
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(readTimeout)
+                    .header("User-Agent", USER_AGENT)
+                    .header("Accept", "image/jpeg,image/png,image/gif;q=0.9,*/*;q=0.5")
+                    .header("Accept-Encoding", acceptEncoding);
+            Opened response = send(imageHttpClient, uri, builder);
+            String location = response.headers().firstValue("Location").orElse(null);
+            int status = response.page().status();
+            if (status < 300 || status >= 400 || status == 304 || location == null) {
+                opened = response;
+                break;
+            }
+            closeQuietly(response.page());
+            if (redirects == MAX_IMAGE_REDIRECTS) {
+                throw new IOException("Trop de redirections lors du téléchargement de l'image " + url);
+            }
+            try {
+                uri = uri.resolve(location.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Redirection invalide : " + location, e);
+            }
+        }
+        Page page = opened.page();
+        HttpHeaders headers = opened.headers();
+        try {
+            if (page.status() >= 400) {
+                throw new HttpStatusException(page.status(), "Erreur HTTP " + page.status() + " lors du téléchargement de l'image");
+            }
+            String contentType = headers.firstValue("Content-Type").orElse("").toLowerCase(Locale.ROOT);
+            if (!contentType.isEmpty() && !contentType.startsWith("image/") && !contentType.startsWith("application/octet-stream")) {
+                throw new IOException("Type de contenu non supporté : " + contentType);
+            }
+            return page.withBody(decode(page.body(), headers));
+        } catch (IOException e) {
+            page.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Refuse une adresse qui n'est pas publique : toutes les adresses du nom d'hôte sont vérifiées
+     */
+    private void checkPublicAddress(URI uri) throws IOException {
+        String scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme) || uri.getHost() == null) {
+            throw new IOException("URL invalide : " + uri);
+        }
+        if (allowPrivateImageAddresses) {
+            return;
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(uri.getHost());
+        } catch (UnknownHostException e) {
+            throw new IOException("Impossible de joindre le site " + uri.getHost(), e);
+        }
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new IOException("Adresse non publique refusée pour " + uri.getHost());
+            }
+        }
+    }
+
+    private static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet6Address) {
+            // fc00::/7 : adresses locales uniques
+            return (bytes[0] & 0xfe) != 0xfc;
+        }
+        // 0.0.0.0/8 et 100.64.0.0/10 (partage d'adresses des opérateurs)
+        return bytes[0] != 0 && !((bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64);
+    }
+
+    /**
+     * Envoie la requête et ouvre la réponse, dont la lecture est bornée par {@code read-timeout}
+     */
+    private Opened send(HttpClient client, URI uri, HttpRequest.Builder builder) throws IOException {
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(builder.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            throw new IOException("Le site " + uri.getHost() + " ne répond pas", e);
+        } catch (ConnectException e) {
+            throw new IOException("Impossible de joindre le site " + uri.getHost(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Téléchargement interrompu");
+        }
+
+        InputStream body = response.body();
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = readWatchdog.schedule(() -> {
+            expired.set(true);
+            closeQuietly(body);
+        }, readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        HttpHeaders headers = response.headers();
+        Page page = new Page(response.uri(), response.statusCode(), charsetOf(headers),
+                headers.firstValue("ETag").orElse(null), headers.firstValue("Last-Modified").orElse(null),
+                body, deadline, expired);
+        return new Opened(page, headers);
+    }
+
+    /**
+     * Suit les redirections d'une URL (lien court) sans télécharger la page cible.
+     * Une requête HEAD est tentée d'abord ; si le service la refuse, une requête GET est envoyée et son corps ignoré.
+     *
+     * @return l'URL finale après redirections
+     */
+    public String resolveRedirects(String url) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("URL invalide : " + url, e);
+        }
+        try {
+            HttpResponse<Void> head = httpClient.send(redirectRequest(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (head.statusCode() < 400) {
+                return head.uri().toString();
+            }
+            HttpResponse<InputStream> get = httpClient.send(redirectRequest(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+            // Seule l'URL finale est utile : le corps n'est pas lu
+            closeQuietly(get.body());
+            if (get.statusCode() >= 400) {
+                throw new HttpStatusException(get.statusCode(), "Erreur HTTP " + get.statusCode() + " lors de la résolution du lien " + url);
+            }
+            return get.uri().toString();
+        } catch (HttpTimeoutException e) {
+            throw new IOException("Le site " + uri.getHost() + " ne répond pas", e);
+        } catch (ConnectException e) {
+            throw new IOException("Impossible de joindre le site " + uri.getHost(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Résolution interrompue");
+        }
+    }
+
+    private HttpRequest.Builder redirectRequest(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+    }
+
+    /**
+     * Décompresse le corps selon l'en-tête Content-Encoding
+     */
+    private InputStream decode(InputStream body, HttpHeaders headers) throws IOException {
+        String encoding = headers.firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case "br" -> new BrotliInputStream(body);
+            case "zstd" -> {
+                if (!zstdAvailable) {
+                    throw new IOException("Encodage de contenu non supporté : " + encoding);
+                }
+                yield new ZstdInputStream(body);
+            }
+            case "gzip", "x-gzip" -> new GZIPInputStream(body);
+            case "deflate" -> new InflaterInputStream(body);
+            case "identity", "" -> body;
+            default -> throw new IOException("Encodage de contenu non supporté : " + encoding);
+        };
+    }
+
+    /**
+     * Extrait le jeu de caractères de l'en-tête Content-Type (null si absent : Jsoup le détectera)
+     */
+    private static String charsetOf(HttpHeaders headers) {
+        String contentType = headers.firstValue("Content-Type").orElse(null);
+        if (contentType == null) {
+            return null;
+        }
+        for (String part : contentType.split(";")) {
+            String param = part.trim();
+            if (param.regionMatches(true, 0, "charset=", 0, 8)) {
+                String charset = param.substring(8).replace("\"", "").trim();
+                return charset.isEmpty() ? null : charset;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Réponse ouverte et ses en-têtes
+     */
+    private record Opened(Page page, HttpHeaders headers) {
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Erreur à la fermeture d'une réponse HTTP : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Page téléchargée : URL finale (après redirections), statut, jeu de caractères, validateurs HTTP
+     * (ETag, Last-Modified, null si absents) et corps décompressé.
+     */
+    public record Page(URI uri, int status, String charset, String etag, String lastModified, InputStream body,
+                       ScheduledFuture<?> deadline, AtomicBoolean expired) implements Closeable {
+
+        Page withBody(InputStream decoded) {
+            return new Page(uri, status, charset, etag, lastModified, decoded, deadline, expired);
+        }
+
+        /**
+         * Indique si le site a confirmé que la page n'a pas changé depuis la réponse précédente (304, corps vide)
+         */
+        public boolean notModified() {
+            return status == 304;
+        }
+
+        /**
+         * Indique si la lecture a été interrompue faute d'avoir reçu la page complète à temps
+         */
+        public boolean timedOut() {
+            return expired.get();
+        }
+
+        @Override
+        public void close() throws IOException {
+            deadline.cancel(false);
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.wishgifthub.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Lecture d'un prix affiché (« 1 299,99 € », « $1,299.99 », « EUR 29.99 », « 1'299.– CHF »...) en montant et devise ISO 4217.
+ * <p>
+ * L'analyse est un parcours unique des caractères, sans expression régulière ni chaîne intermédiaire :
+ * le premier nombre du texte est retenu, et son séparateur décimal est déduit de la position des virgules et des points
+ * (le dernier séparateur suivi d'un nombre de chiffres différent de 3 est décimal ; espaces et apostrophes séparent
+ * toujours les milliers).
+ * <p>
+ * Cas particuliers :
+ * <ul>
+ *     <li>un nombre suivi de « x » ou « × » est une quantité (« 2 x 30€ ») : le prix est le nombre suivant ;</li>
+ *     <li>un point seul suivi de 3 chiffres (« 29.995 € ») est ambigu (milliers ou décimales) : aucun prix n'est retenu,
+ *     sauf si la partie entière ne peut pas être un groupe de milliers (plus de 3 chiffres, ou « 0 ») ;
+ *     une virgule seule suivie de 3 chiffres (« $1,299 ») sépare les milliers ;</li>
+ *     <li>au-delà de 10 chiffres avant la virgule, le montant ne tient pas en base (NUMERIC(12,2)) et n'est pas retenu.</li>
+ * </ul>
+ */
+public final class PriceParser {
+
+    /**
+     * Nombre maximal de chiffres de la partie entière (NUMERIC(12,2) en base : 10 chiffres avant la virgule)
+     */
+    private static final int MAX_INTEGER_DIGITS = 10;
+
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("9999999999.99");
+
+    private static final String[] KNOWN_CODES = {
+            "EUR", "USD", "GBP", "CHF", "JPY", "CAD", "AUD", "NZD", "SEK", "NOK", "DKK", "PLN", "CZK", "HUF", "CNY", "INR", "BRL", "MXN"
+    };
+
+    private PriceParser() {
+    }
+
+    /**
+     * Prix analysé : montant à deux décimales et devise ISO 4217 (null si le texte n'en indique aucune)
+     */
+    public record ParsedPrice(BigDecimal amount, String currency) {
+
+        /**
+         * Forme d'affichage normalisée (« 1299.99 € »), utilisée pour le prix texte des souhaits
+         */
+        public String format() {
+            String plain = amount.toPlainString();
+            if (currency == null) {
+                return plain;
+            }
+            String symbol = symbolOf(currency);
+            return plain + " " + (symbol != null ? symbol : currency);
+        }
+    }
+
+    /**
+     * Analyse un prix affiché
+     *
+     * @return le prix, ou null si le texte ne contient aucun nombre, un nombre ambigu ou trop grand
+     */
+    public static ParsedPrice parse(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        int start = 0;
+        int end;
+        int lastSeparator;
+        char lastSeparatorChar;
+        int separators;
+        boolean mixedSeparators;
+        boolean repeatedSeparator;
+        while (true) {
+            while (start < length && !isDigit(text.charAt(start))) {
+                start++;
+            }
+            if (start == length) {
+                return null;
+            }
+
+            // Premier passage sur le nombre : fin du nombre et dernier séparateur ',' ou '.'
+            end = start;
+            lastSeparator = -1;
+            lastSeparatorChar = 0;
+            separators = 0;
+            mixedSeparators = false;
+            repeatedSeparator = false;
+            while (end < length) {
+                char c = text.charAt(end);
+                if (isDigit(c)) {
+                    end++;
+                    continue;
+                }
+                if (!isSeparator(c) || end + 1 >= length || !isDigit(text.charAt(end + 1))) {
+                    break;
+                }
+                separators++;
+                if (c == ',' || c == '.') {
+                    if (lastSeparatorChar != 0) {
+                        if (lastSeparatorChar == c) {
+                            repeatedSeparator = true;
+                        } else {
+                            mixedSeparators = true;
+                        }
+                    }
+                    lastSeparator = end;
+                    lastSeparatorChar = c;
+                }
+                end++;
+            }
+
+            // « 2 x 30€ » : le premier nombre est une quantité, le prix est le suivant
+            int next = afterQuantity(text, end);
+            if (next == -1) {
+                break;
+            }
+            start = next;
+        }
+
+        int decimalSeparator = -1;
+        if (lastSeparator != -1) {
+            int digitsAfter = end - lastSeparator - 1;
+            // « 1,299.99 » / « 1.299,99 » / « 29,9 » : décimal ; « 1,299 » / « 1.299.000 » : milliers ; « 1.299,000 » : décimal
+            if (digitsAfter != 3 ? !repeatedSeparator || mixedSeparators : mixedSeparators) {
+                decimalSeparator = lastSeparator;
+            } else if (separators == 1 && lastSeparatorChar == '.') {
+                // « 29.995 » : milliers ou décimales, sauf si la partie entière ne peut pas être un groupe de milliers
+                int groupDigits = lastSeparator - start;
+                if (groupDigits <= 3 && text.charAt(start) != '0') {
+                    return null;
+                }
+                decimalSeparator = lastSeparator;
+            }
+        }
+
+        // Second passage : construction du montant sans chaîne intermédiaire
+        long unscaled = 0;
+        int integerDigits = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        boolean ignoredDigit = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                continue;
+            }
+            if (decimalSeparator != -1 && i > decimalSeparator) {
+                if (fractionDigits == 2) {
+                    // Au-delà des centimes : arrondi sur le premier chiffre ignoré
+                    if (!ignoredDigit) {
+                        roundUp = c >= '5';
+                        ignoredDigit = true;
+                    }
+                    continue;
+                }
+                fractionDigits++;
+            } else if ((unscaled != 0 || c != '0') && ++integerDigits > MAX_INTEGER_DIGITS) {
+                return null;
+            }
+            unscaled = unscaled * 10 + (c - '0');
+        }
+        BigDecimal amount = BigDecimal.valueOf(roundUp ? unscaled + 1 : unscaled, fractionDigits).setScale(2, RoundingMode.UNNECESSARY);
+        if (amount.compareTo(MAX_AMOUNT) > 0) {
+            // « 9999999999.999 » arrondi à 10000000000.00
+            return null;
+        }
+
+        return new ParsedPrice(amount, findCurrency(text));
+    }
+
+    /**
+     * Position du premier chiffre du nombre qui suit un signe de quantité (« x » ou « × », entouré d'espaces éventuels)
+     *
+     * @return la position, ou -1 si le nombre terminé en {@code end} n'est pas suivi d'un signe de quantité
+     */
+    private static int afterQuantity(CharSequence text, int end) {
+        int length = text.length();
+        int i = skipSpaces(text, end);
+        if (i >= length) {
+            return -1;
+        }
+        char c = text.charAt(i);
+        if (c != 'x' && c != 'X' && c != '×') {
+            return -1;
+        }
+        i = skipSpaces(text, i + 1);
+        return i < length && isDigit(text.charAt(i)) ? i : -1;
+    }
+
+    private static int skipSpaces(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && (text.charAt(i) == ' ' || text.charAt(i) == '\u00a0' || text.charAt(i) == '\u202f')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Devise indiquée par un symbole ou un code ISO n'importe où dans le texte
+     */
+    private static String findCurrency(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '€':
+                    return "EUR";
+                case '£':
+                    return "GBP";
+                case '¥':
+                    return "JPY";
+                case '₹':
+                    return "INR";
+                case '$':
+                    return dollarCurrency(text, i);
+                default:
+                    if (isUpper(c) && i + 2 < length && (i == 0 || !isLetter(text.charAt(i - 1)))
+                            && (i + 3 == length || !isLetter(text.charAt(i + 3)))) {
+                        String code = knownCode(text, i);
+                        if (code != null) {
+                            return code;
+                        }
+                    }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@code $}, {@code US$}, {@code CA$}/{@code C$}, {@code A$}/{@code AU$}
+     */
+    private static String dollarCurrency(CharSequence text, int dollar) {
+        if (dollar >= 1) {
+            char previous = Character.toUpperCase(text.charAt(dollar - 1));
+            char beforePrevious = dollar >= 2 ? Character.toUpperCase(text.charAt(dollar - 2)) : ' ';
+            if (previous == 'C' || (previous == 'A' && beforePrevious == 'C')) {
+                return "CAD";
+            }
+            if (previous == 'A' || (previous == 'U' && beforePrevious == 'A')) {
+                return "AUD";
+            }
+        }
+        return "USD";
+    }
+
+    private static String knownCode(CharSequence text, int offset) {
+        for (String code : KNOWN_CODES) {
+            if (text.charAt(offset) == code.charAt(0)
+                    && text.charAt(offset + 1) == code.charAt(1)
+                    && text.charAt(offset + 2) == code.charAt(2)) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    private static String symbolOf(String currency) {
+        return switch (currency) {
+            case "EUR" -> "€";
+            case "USD" -> "$";
+            case "GBP" -> "£";
+            case "JPY" -> "¥";
+            default -> null;
+        };
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    /**
+     * Séparateurs admis à l'intérieur d'un nombre : virgule, point, espaces (y compris insécables) et apostrophes
+     */
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == '.' || c == ' ' || c == '\u00a0' || c == '\u202f' || c == '\'' || c == '’';
+    }
+}
@@ -0,0 +1,75 @@
+package com.wishgifthub.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Verrous à bail des tâches planifiées, stockés en base (table {@code scheduled_job_locks}).
+ * <p>
+ * Toutes les instances de l'API déclenchent leurs tâches planifiées au même moment ; seule celle qui obtient
+ * le verrou exécute la tâche. Le bail est prolongé par {@link #renew} pendant l'exécution : si l'instance
+ * s'arrête sans le libérer, une autre instance peut reprendre la tâche à son expiration.
+ */
+@Service
+public class ScheduledJobLock {
+
+    private static final String ACQUIRE = """
+            INSERT INTO scheduled_job_locks (name, locked_until, locked_by) VALUES (?, now() + make_interval(secs => ?), ?)
+            ON CONFLICT (name) DO UPDATE SET locked_until = EXCLUDED.locked_until, locked_by = EXCLUDED.locked_by
+            WHERE scheduled_job_locks.locked_until <= now()
+            """;
+
+    private static final String RENEW = """
+            UPDATE scheduled_job_locks SET locked_until = now() + make_interval(secs => ?)
+            WHERE name = ? AND locked_by = ?
+            """;
+
+    private static final String RELEASE = "UPDATE scheduled_job_locks SET locked_until = now() WHERE name = ? AND locked_by = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Identifiant de cette instance (nom d'hôte, et un suffixe aléatoire pour distinguer deux démarrages)
+     */
+    private final String instanceId = hostName() + "/" + UUID.randomUUID();
+
+    /**
+     * Prend le verrou de la tâche s'il est libre ou si son bail a expiré
+     *
+     * @return true si cette instance détient désormais le verrou
+     */
+    public boolean tryAcquire(String name, Duration lease) {
+        return jdbcTemplate.update(ACQUIRE, name, lease.toSeconds(), instanceId) == 1;
+    }
+
+    /**
+     * Prolonge le bail du verrou détenu par cette instance
+     *
+     * @return false si le verrou a été perdu (bail expiré et repris par une autre instance)
+     */
+    public boolean renew(String name, Duration lease) {
+        return jdbcTemplate.update(RENEW, lease.toSeconds(), name, instanceId) == 1;
+    }
+
+    /**
+     * Libère le verrou détenu par cette instance
+     */
+    public void release(String name) {
+        jdbcTemplate.update(RELEASE, name, instanceId);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.wishgifthub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+
+/**
+ * Forme canonique des URLs de produits, pour que les variantes d'un même lien partagent une seule entrée
+ * dans les caches et en base.
+ * <p>
+ * Règles appliquées (décrites par site dans le fichier de règles, voir {@link ExtractionRuleEngine}) :
+ * schéma et hôte en minuscules, port par défaut et fragment retirés, paramètres de suivi retirés (utm_*, tag, ref...),
+ * et chemin réduit à l'identifiant produit quand le site en définit un (ex : {@code /dp/ASIN} pour Amazon).
+ * Les liens courts (amzn.to...) sont résolus par une requête, dont le résultat est conservé en cache.
+ */
+@Slf4j
+@Component
+public class UrlCanonicalizer {
+
+    @Autowired
+    private ExtractionRuleEngine extractionRuleEngine;
+
+    @Autowired
+    private MetadataHttpClient metadataHttpClient;
+
+    @Autowired
+    private MetadataFetchExecutor metadataFetchExecutor;
+
+    @Value("${wishgifthub.metadata.short-links.cache-size:10000}")
+    private long shortLinkCacheSize;
+
+    @Value("${wishgifthub.metadata.short-links.ttl:7d}")
+    private Duration shortLinkTtl;
+
+    /**
+     * Lien court -> URL cible
+     */
+    private Cache<String, String> resolvedShortLinks;
+
+    @PostConstruct
+    void init() {
+        resolvedShortLinks = Caffeine.newBuilder()
+                .maximumSize(shortLinkCacheSize)
+                .expireAfterWrite(shortLinkTtl)
+                .build();
+    }
+
+    /**
+     * Forme canonique de l'URL, sans accès réseau. Un lien court déjà résolu est remplacé par sa cible ;
+     * un lien court jamais résolu est seulement normalisé.
+     *
+     * @return l'URL canonique, ou l'URL d'origine (sans espaces) si elle n'est pas une URL http(s) valide
+     */
+    public String canonicalize(String url) {
+        String trimmed = url.trim();
+        String resolved = resolvedShortLinks.getIfPresent(trimmed);
+        return normalize(resolved != null ? resolved : trimmed);
+    }
+
+    /**
+     * Forme canonique de l'URL, en résolvant si besoin un lien court (sur l'exécuteur de téléchargements).
+     * Si la résolution échoue, l'URL est seulement normalisée.
+     */
+    public CompletableFuture<String> canonicalizeAsync(String url) {
+        String trimmed = url.trim();
+        if (!isUnresolvedShortLink(trimmed)) {
+            return CompletableFuture.completedFuture(canonicalize(trimmed));
+        }
+        return metadataFetchExecutor.submit(trimmed, () -> metadataHttpClient.resolveRedirects(trimmed))
+                .handle((target, error) -> {
+                    if (error != null) {
+                        log.debug("Lien court non résolu {} : {}", trimmed, error.getMessage());
+                        return normalize(trimmed);
+                    }
+                    resolvedShortLinks.put(trimmed, target);
+                    return normalize(target);
+                });
+    }
+
+    private boolean isUnresolvedShortLink(String url) {
+        if (resolvedShortLinks.getIfPresent(url) != null) {
+            return false;
+        }
+        try {
+            return extractionRuleEngine.isShortLinkHost(new URI(url).getHost());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private String normalize(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return url;
+        }
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : null;
+        if (uri.getHost() == null || !("http".equals(scheme) || "https".equals(scheme))) {
+            return url;
+        }
+
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        ExtractionRuleEngine.UrlRules site = extractionRuleEngine.forHost(host).url();
+        ExtractionRuleEngine.UrlRules defaults = extractionRuleEngine.defaults().url();
+
+        StringBuilder canonical = new StringBuilder(scheme).append("://").append(host);
+        int port = uri.getPort();
+        if (port != -1 && !(port == 80 && "http".equals(scheme)) && !(port == 443 && "https".equals(scheme))) {
+            canonical.append(':').append(port);
+        }
+
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (site.canonicalPath() != null) {
+            Matcher matcher = site.canonicalPath().matcher(path);
+            if (matcher.find()) {
+                // Fiche produit identifiée : l'identifiant suffit, la requête est retirée
+                return canonical.append(site.canonicalPath().matcher(matcher.group()).replaceFirst(site.canonicalReplacement())).toString();
+            }
+        }
+        canonical.append(path);
+
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            StringBuilder kept = new StringBuilder();
+            for (String parameter : query.split("&")) {
+                if (parameter.isEmpty()) {
+                    continue;
+                }
+                int equals = parameter.indexOf('=');
+                String name = equals == -1 ? parameter : parameter.substring(0, equals);
+                if (site.isTrackingParameter(name) || defaults.isTrackingParameter(name)) {
+                    continue;
+                }
+                kept.append(kept.isEmpty() ? "" : "&").append(parameter);
+            }
+            if (!kept.isEmpty()) {
+                canonical.append('?').append(kept);
+            }
+        }
+        return canonical.toString();
+    }
+}
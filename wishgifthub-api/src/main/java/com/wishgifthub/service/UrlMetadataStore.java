@@ -0,0 +1,130 @@
+package com.wishgifthub.service;
+
+import com.wishgifthub.entity.UrlMetadata;
+import com.wishgifthub.repository.UrlMetadataRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Stockage persistant des métadonnées extraites (table {@code url_metadata}), indexé par le SHA-256 de l'URL canonique.
+ * <p>
+ * Le stockage est un complément du cache mémoire : une indisponibilité de la base n'empêche pas l'extraction,
+ * elle est seulement journalisée.
+ */
+@Slf4j
+@Service
+public class UrlMetadataStore {
+
+    @Autowired
+    private UrlMetadataRepository urlMetadataRepository;
+
+    @Value("${wishgifthub.metadata.store.revalidate-after:24h}")
+    private Duration revalidateAfter;
+
+    /**
+     * Métadonnées stockées pour une URL canonique
+     *
+     * @return la ligne stockée, ou null si l'URL n'a jamais été extraite (ou si la base est indisponible)
+     */
+    public UrlMetadata find(String key) {
+        try {
+            return urlMetadataRepository.findById(hash(key)).orElse(null);
+        } catch (DataAccessException e) {
+            log.warn("Lecture des métadonnées stockées impossible pour {} : {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Indique si la ligne doit être rafraîchie (dernière vérification plus ancienne que {@code revalidate-after})
+     */
+    public boolean isStale(UrlMetadata stored) {
+        return stored.getCheckedAt().plus(revalidateAfter).isBefore(OffsetDateTime.now());
+    }
+
+    /**
+     * Enregistre (ou remplace) les métadonnées d'une URL après un téléchargement réussi
+     */
+    public void save(String key, Map<String, String> metadata, String etag, String lastModified) {
+        OffsetDateTime now = OffsetDateTime.now();
+        UrlMetadata row = new UrlMetadata(
+                hash(key),
+                truncate(key, 2048),
+                truncate(metadata.get("title"), 1024),
+                truncate(metadata.get("description"), 10000),
+                truncate(metadata.get("image"), 2048),
+                truncate(metadata.get("price"), 100),
+                truncate(etag, 1024),
+                truncate(lastModified, 100),
+                now,
+                now);
+        try {
+            urlMetadataRepository.save(row);
+        } catch (DataAccessException e) {
+            // Y compris l'insertion concurrente de la même URL par une autre instance : la ligne existe, c'est suffisant
+            log.warn("Enregistrement des métadonnées impossible pour {} : {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Enregistre que la page n'a pas changé (réponse 304) : seule la date de vérification est mise à jour,
+     * ainsi que les validateurs si le site en a renvoyé de nouveaux
+     */
+    public void markChecked(UrlMetadata stored, String etag, String lastModified) {
+        stored.setCheckedAt(OffsetDateTime.now());
+        if (etag != null) {
+            stored.setEtag(truncate(etag, 1024));
+        }
+        if (lastModified != null) {
+            stored.setLastModified(truncate(lastModified, 100));
+        }
+        try {
+            urlMetadataRepository.save(stored);
+        } catch (DataAccessException e) {
+            log.warn("Mise à jour de la date de vérification impossible pour {} : {}", stored.getUrl(), e.getMessage());
+        }
+    }
+
+    /**
+     * Métadonnées au format renvoyé par l'extraction
+     */
+    public static Map<String, String> toMetadata(UrlMetadata stored) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("title", stored.getTitle() != null ? stored.getTitle() : "");
+        metadata.put("description", stored.getDescription() != null ? stored.getDescription() : "");
+        metadata.put("image", stored.getImageUrl() != null ? stored.getImageUrl() : "");
+        metadata.put("price", stored.getPrice() != null ? stored.getPrice() : "");
+        return metadata;
+    }
+
+    /**
+     * SHA-256 hexadécimal de l'URL canonique (clé primaire de {@code url_metadata})
+     */
+    static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null) {
+            return null;
+        }
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
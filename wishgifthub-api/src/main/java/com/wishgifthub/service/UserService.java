@@ -19,6 +19,8 @@ public class UserService {
 
     private final UserRepository userRepository;
 
+    private final UserSnapshotCache userSnapshotCache;
+
     /**
      * Met à jour l'avatar et/ou le pseudo d'un utilisateur.
      *
@@ -42,6 +44,8 @@ public class UserService {
                 user.setPseudo(pseudo);
             }
             User updatedUser = userRepository.save(user);
+            // Le filtre JWT relira le profil à jour à la prochaine requête
+            userSnapshotCache.invalidate(updatedUser.getId());
             log.info("Profil mis à jour avec succès pour l'utilisateur: {}", email);
             return UserDto.fromEntity(updatedUser);
         }
@@ -0,0 +1,96 @@
+package com.wishgifthub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wishgifthub.entity.User;
+import com.wishgifthub.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Instantanés des utilisateurs authentifiés, gardés en mémoire pour que le filtre JWT n'interroge pas la base
+ * à chaque requête.
+ * <p>
+ * Toute modification du profil doit appeler {@link #invalidate(UUID)} ; la durée de vie {@code ttl} borne
+ * l'obsolescence d'une modification faite hors de l'application.
+ */
+@Service
+public class UserSnapshotCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wishgifthub.auth.user-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wishgifthub.auth.user-cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${wishgifthub.auth.user-cache.max-size:10000}")
+    private long maxSize;
+
+    /**
+     * Utilisateurs par identifiant ; un utilisateur introuvable n'est pas mémorisé
+     */
+    private Cache<UUID, UserSnapshot> snapshots;
+
+    /**
+     * Champs de l'utilisateur utiles à l'authentification et aux controllers
+     */
+    public record UserSnapshot(UUID id, String email, boolean admin, String pseudo, String avatarId) {
+
+        static UserSnapshot of(User user) {
+            return new UserSnapshot(user.getId(), user.getEmail(), user.isAdmin(), user.getPseudo(), user.getAvatarId());
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "auth.user-snapshots");
+    }
+
+    /**
+     * Instantané de l'utilisateur, lu en base uniquement s'il n'est pas déjà en mémoire
+     */
+    public Optional<UserSnapshot> find(UUID userId) {
+        if (!enabled) {
+            return userRepository.findById(userId).map(UserSnapshot::of);
+        }
+        return Optional.ofNullable(snapshots.get(userId,
+                id -> userRepository.findById(id).map(UserSnapshot::of).orElse(null)));
+    }
+
+    /**
+     * Oublie l'instantané de l'utilisateur. Dans une transaction, il est oublié une seconde fois après le commit,
+     * pour qu'une requête concurrente ne remette pas en mémoire l'état d'avant la modification.
+     */
+    public void invalidate(UUID userId) {
+        snapshots.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    snapshots.invalidate(userId);
+                }
+            });
+        }
+    }
+}
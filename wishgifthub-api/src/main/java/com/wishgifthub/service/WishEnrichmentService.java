@@ -0,0 +1,91 @@
+package com.wishgifthub.service;
+
+import com.wishgifthub.entity.Wish;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Complète en arrière-plan l'image et le prix d'un souhait enregistré avec une URL mais sans ces champs.
+ * <p>
+ * L'enregistrement du souhait n'attend pas l'extraction : elle est ajoutée à la file {@code extraction_jobs}
+ * (conservée au redémarrage, voir {@link ExtractionJobWorker}), puis une seule mise à jour renseigne les champs
+ * encore vides (une valeur saisie entre-temps par l'utilisateur n'est jamais écrasée, et rien n'est écrit si l'URL
+ * du souhait a changé). Le client obtient les champs complétés à sa prochaine lecture.
+ */
+@Service
+public class WishEnrichmentService {
+
+    private static final String FILL_MISSING_FIELDS = """
+            UPDATE wishes SET
+                image_url = COALESCE(image_url, ?),
+                price_amount = CASE WHEN price IS NULL THEN ? ELSE price_amount END,
+                price_currency = CASE WHEN price IS NULL THEN ? ELSE price_currency END,
+                price = COALESCE(price, ?)
+            WHERE id = ? AND url = ? AND (image_url IS NULL OR price IS NULL)
+            """;
+
+    @Autowired
+    private ExtractionJobQueue extractionJobQueue;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wishgifthub.wish-enrichment.enabled:true}")
+    private boolean enabled;
+
+    private Counter enrichedCounter;
+
+    @PostConstruct
+    void init() {
+        enrichedCounter = Counter.builder("wishes.enrichment")
+                .description("Souhaits complétés en arrière-plan")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Planifie l'extraction si le souhait a une URL mais pas d'image ou pas de prix
+     */
+    public void enrichIfIncomplete(Wish wish) {
+        if (!enabled || wish.getUrl() == null || (wish.getImageUrl() != null && wish.getPrice() != null)) {
+            return;
+        }
+        extractionJobQueue.enqueue(wish.getId(), wish.getUrl());
+    }
+
+    /**
+     * Renseigne les champs encore vides du souhait avec les métadonnées extraites de son URL
+     *
+     * @throws DataAccessException si la mise à jour échoue (la tâche d'extraction sera alors reprise)
+     */
+    void fillMissingFields(UUID wishId, String url, Map<String, String> metadata) {
+        String image = metadata.getOrDefault("image", "");
+        String price = metadata.getOrDefault("price", "");
+        image = image.isEmpty() || image.length() > 2048 ? null : image;
+        PriceParser.ParsedPrice parsed = price.isEmpty() || price.length() > 100 ? null : PriceParser.parse(price);
+        if (image == null && parsed == null) {
+            return;
+        }
+        int updated = jdbcTemplate.update(FILL_MISSING_FIELDS,
+                image,
+                parsed != null ? parsed.amount() : null,
+                parsed != null ? parsed.currency() : null,
+                parsed != null ? price : null,
+                wishId,
+                url);
+        if (updated > 0) {
+            enrichedCounter.increment();
+        }
+    }
+}
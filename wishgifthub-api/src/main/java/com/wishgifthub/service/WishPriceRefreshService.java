@@ -0,0 +1,281 @@
+package com.wishgifthub.service;
+
+import com.wishgifthub.repository.WishRepository;
+import com.wishgifthub.repository.WishRepository.PriceSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rafraîchissement périodique des prix des souhaits qui pointent vers une page produit.
+ * <p>
+ * Les souhaits sont parcourus par pages (pagination par clé sur {@code wishes.id}) : chaque page est lue par une requête
+ * courte, ses URLs sont téléchargées à nouveau avec un parallélisme borné et un intervalle minimal entre deux requêtes
+ * vers un même site, puis seuls les prix dont le montant ou la devise a changé sont écrits, en une mise à jour groupée.
+ * Aucune connexion à la base n'est conservée pendant les téléchargements.
+ * <p>
+ * Un souhait modifié par son auteur pendant le passage n'est pas écrasé : la mise à jour ne s'applique que si le prix
+ * est encore celui lu au début de la page. Avec plusieurs instances de l'API, un verrou en base
+ * ({@link ScheduledJobLock}) garantit qu'une seule d'entre elles effectue le passage.
+ */
+@Slf4j
+@Service
+public class WishPriceRefreshService {
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private static final String LOCK_NAME = "price-refresh";
+
+    private static final String UPDATE_PRICE = """
+            UPDATE wishes SET price = ?, price_amount = ?, price_currency = ?
+            WHERE id = ? AND price IS NOT DISTINCT FROM ?
+            """;
+
+    @Autowired
+    private WishRepository wishRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MetadataExtractionService metadataExtractionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    @Value("${wishgifthub.price-refresh.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wishgifthub.price-refresh.page-size:200}")
+    private int pageSize;
+
+    @Value("${wishgifthub.price-refresh.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${wishgifthub.price-refresh.host-interval:2s}")
+    private Duration hostInterval;
+
+    @Value("${wishgifthub.metadata.fetch.background-deadline:45s}")
+    private Duration fetchDeadline;
+
+    @Value("${wishgifthub.price-refresh.lock-lease:15m}")
+    private Duration lockLease;
+
+    private Counter checkedCounter;
+
+    private Counter updatedCounter;
+
+    private Counter failedCounter;
+
+    /**
+     * Instant (en {@link System#nanoTime()}) du dernier téléchargement commencé vers l'hôte
+     */
+    private final Map<String, Long> lastStartByHost = new ConcurrentHashMap<>();
+
+    /**
+     * Nouveau prix d'un souhait ; {@code previousPrice} est le prix lu avec la page, avant le téléchargement
+     */
+    private record PriceUpdate(UUID id, String price, PriceParser.ParsedPrice parsed, String previousPrice) {
+    }
+
+    @PostConstruct
+    void init() {
+        checkedCounter = resultCounter("checked");
+        updatedCounter = resultCounter("updated");
+        failedCounter = resultCounter("failed");
+    }
+
+    private Counter resultCounter(String result) {
+        return Counter.builder("wishes.price.refresh")
+                .tag("result", result)
+                .description("URLs de souhaits vérifiées, prix mis à jour et extractions en échec lors du rafraîchissement des prix")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Parcourt tous les souhaits ayant une URL et met à jour les prix qui ont changé
+     */
+    @Scheduled(cron = "${wishgifthub.price-refresh.cron:0 0 4 * * *}")
+    public void refreshPrices() {
+        if (!enabled) {
+            return;
+        }
+        if (!scheduledJobLock.tryAcquire(LOCK_NAME, lockLease)) {
+            log.info("Rafraîchissement des prix déjà en cours sur une autre instance");
+            return;
+        }
+        try {
+            refreshAll();
+        } finally {
+            lastStartByHost.clear();
+            scheduledJobLock.release(LOCK_NAME);
+        }
+    }
+
+    private void refreshAll() {
+        long startedAt = System.nanoTime();
+        int checked = 0;
+        int updated = 0;
+        UUID afterId = FIRST_ID;
+        while (true) {
+            List<PriceSnapshot> page = wishRepository.findByUrlIsNotNullAndIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+            checked += page.size();
+            updated += refreshPage(page);
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            // Le bail couvre une page ; s'il a expiré, une autre instance a pu reprendre le passage
+            if (!scheduledJobLock.renew(LOCK_NAME, lockLease)) {
+                log.warn("Verrou du rafraîchissement des prix perdu, passage interrompu");
+                break;
+            }
+        }
+        log.info("Rafraîchissement des prix terminé : {} souhait(s) vérifié(s), {} prix mis à jour en {} s",
+                checked, updated, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * Télécharge les URLs de la page (une seule fois par URL) et écrit les prix modifiés
+     *
+     * @return le nombre de souhaits mis à jour
+     */
+    private int refreshPage(List<PriceSnapshot> page) {
+        Map<String, List<PriceSnapshot>> byUrl = new LinkedHashMap<>();
+        for (PriceSnapshot wish : page) {
+            if (!wish.getUrl().isBlank()) {
+                byUrl.computeIfAbsent(wish.getUrl().trim(), url -> new ArrayList<>()).add(wish);
+            }
+        }
+
+        ConcurrentLinkedQueue<PriceUpdate> updates = new ConcurrentLinkedQueue<>();
+        // Une tâche (thread virtuel) par URL : l'attente du créneau de l'hôte se fait sans place réservée,
+        // les places ne bornent que les téléchargements en cours (voir acquireHostSlot)
+        Semaphore permits = new Semaphore(maxConcurrent);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Map.Entry<String, List<PriceSnapshot>> entry : byUrl.entrySet()) {
+                executor.execute(() -> refreshUrl(entry.getKey(), entry.getValue(), updates, permits));
+            }
+        }
+
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> batch = updates.stream()
+                .map(update -> new Object[]{update.price(), update.parsed().amount(), update.parsed().currency(),
+                        update.id(), update.previousPrice()})
+                .toList();
+        // Un souhait dont le prix a été modifié depuis la lecture de la page n'est pas mis à jour
+        int updated = Arrays.stream(jdbcTemplate.batchUpdate(UPDATE_PRICE, batch)).sum();
+        updatedCounter.increment(updated);
+        return updated;
+    }
+
+    private void refreshUrl(String url, List<PriceSnapshot> wishes, ConcurrentLinkedQueue<PriceUpdate> updates,
+                            Semaphore permits) {
+        try {
+            Map<String, String> metadata;
+            acquireHostSlot(url, permits);
+            try {
+                metadata = metadataExtractionService.refreshMetadataAsync(url)
+                        .get(fetchDeadline.toMillis(), TimeUnit.MILLISECONDS);
+            } finally {
+                permits.release();
+            }
+            checkedCounter.increment();
+            String price = metadata.getOrDefault("price", "");
+            PriceParser.ParsedPrice parsed = PriceParser.parse(price);
+            if (parsed == null || price.length() > 100) {
+                return;
+            }
+            for (PriceSnapshot wish : wishes) {
+                if (hasChanged(wish, parsed)) {
+                    updates.add(new PriceUpdate(wish.getId(), price, parsed, wish.getPrice()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.debug("Prix non rafraîchi pour {} : {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * Compare montants et devises plutôt que les textes : « 29,99 € » saisi par l'utilisateur et « 29.99 EUR » lu
+     * sur la page sont le même prix. Une devise absente de la page ne compte pas comme un changement.
+     */
+    private static boolean hasChanged(PriceSnapshot wish, PriceParser.ParsedPrice parsed) {
+        if (wish.getPriceAmount() == null || parsed.amount().compareTo(wish.getPriceAmount()) != 0) {
+            return true;
+        }
+        return parsed.currency() != null && !parsed.currency().equals(wish.getPriceCurrency());
+    }
+
+    /**
+     * Prend une place et le créneau de l'hôte de l'URL : l'intervalle est compté entre deux téléchargements
+     * réellement commencés. L'attente de l'hôte se fait sans place ; si l'hôte a été pris pendant l'attente
+     * d'une place, la place est rendue et l'attente reprend. Au retour, l'appelant détient une place.
+     */
+    private void acquireHostSlot(String url, Semaphore permits) throws InterruptedException {
+        String host = hostOf(url);
+        long interval = hostInterval.toNanos();
+        while (true) {
+            Long lastStart = lastStartByHost.get(host);
+            if (lastStart != null) {
+                long wait = lastStart + interval - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            permits.acquire();
+            long now = System.nanoTime();
+            Long previous = lastStartByHost.get(host);
+            boolean free = previous == null
+                    ? lastStartByHost.putIfAbsent(host, now) == null
+                    : now - previous >= interval && lastStartByHost.replace(host, previous, now);
+            if (free) {
+                return;
+            }
+            permits.release();
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
@@ -36,6 +36,15 @@ public class WishService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UrlCanonicalizer urlCanonicalizer;
+
+    @Autowired
+    private WishEnrichmentService wishEnrichmentService;
+
+    @Autowired
+    private ImageThumbnailService imageThumbnailService;
+
     public WishResponse createWish(UUID groupId, WishRequest request, UUID userId) {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new ResourceNotFoundException("Groupe", groupId));
@@ -67,24 +76,33 @@ public class WishService {
             wish.setDescription(request.getDescription());
         }
         if (request.getUrl() != null) {
-            wish.setUrl(request.getUrl().toString());
+            // Forme canonique (sans paramètres de suivi) : même clé que le cache des métadonnées
+            wish.setUrl(urlCanonicalizer.canonicalize(request.getUrl().toString()));
         }
         if (request.getImageUrl() != null) {
             wish.setImageUrl(request.getImageUrl().toString());
         }
         if (request.getPrice() != null) {
-            wish.setPrice(request.getPrice());
+            setPrice(wish, request.getPrice());
         }
         wish = wishRepository.save(wish);
+        // Image et prix manquants complétés en arrière-plan depuis la page produit
+        wishEnrichmentService.enrichIfIncomplete(wish);
 
         return toResponse(wish);
     }
 
-    public List<WishResponse> getWishesByGroup(UUID groupId, UUID userId) {
+    /**
+     * Souhaits du groupe, éventuellement triés par montant (tri fait en base sur {@code price_amount})
+     */
+    public List<WishResponse> getWishesByGroup(UUID groupId, UUID userId, boolean sortByPrice) {
         groupRepository.findById(groupId)
                 .orElseThrow(() -> new ResourceNotFoundException("Groupe", groupId));
 
-        return wishRepository.findByGroupId(groupId).stream()
+        List<Wish> wishes = sortByPrice
+                ? wishRepository.findByGroupIdOrderByPriceAmountAscCreatedAtAsc(groupId)
+                : wishRepository.findByGroupId(groupId);
+        return wishes.stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
     }
@@ -182,11 +200,12 @@ public class WishService {
         // Mise à jour des champs
         wish.setGiftName(request.getGiftName());
         wish.setDescription(request.getDescription());
-        wish.setUrl(request.getUrl() != null ? request.getUrl().toString() : null);
+        wish.setUrl(request.getUrl() != null ? urlCanonicalizer.canonicalize(request.getUrl().toString()) : null);
         wish.setImageUrl(request.getImageUrl() != null ? request.getImageUrl().toString() : null);
-        wish.setPrice(request.getPrice());
+        setPrice(wish, request.getPrice());
 
         wish = wishRepository.save(wish);
+        wishEnrichmentService.enrichIfIncomplete(wish);
 
         return toResponse(wish);
     }
@@ -201,6 +220,16 @@ public class WishService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Prix saisi (conservé tel quel pour l'affichage) et montant/devise lus dans ce prix
+     */
+    private void setPrice(Wish wish, String price) {
+        PriceParser.ParsedPrice parsed = PriceParser.parse(price);
+        wish.setPrice(price);
+        wish.setPriceAmount(parsed != null ? parsed.amount() : null);
+        wish.setPriceCurrency(parsed != null ? parsed.currency() : null);
+    }
+
     private WishResponse toResponse(Wish wish) {
         WishResponse resp = new WishResponse();
         resp.setId(wish.getId());
@@ -223,10 +252,13 @@ public class WishService {
             } catch (Exception e) {
                 log.warn("URL d'image invalide pour le souhait {}: {}", wish.getId(), wish.getImageUrl(), e);
             }
+            resp.setThumbnailUrl(imageThumbnailService.thumbnailPath(wish.getImageUrl()));
         }
         if (wish.getPrice() != null) {
             resp.setPrice(wish.getPrice());
         }
+        resp.setPriceAmount(wish.getPriceAmount());
+        resp.setPriceCurrency(wish.getPriceCurrency());
         if (wish.getReservedBy() != null) {
             resp.setReservedBy(wish.getReservedBy().getId());
         }
@@ -0,0 +1,301 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Renseigne {@code price_amount} et {@code price_currency} des souhaits existants à partir du prix texte.
+ * <p>
+ * L'analyse est une copie figée de {@code PriceParser} ({@link FrozenPriceParser}) : une migration versionnée ne doit
+ * pas changer de résultat quand l'analyseur de l'application évolue. Ne pas la modifier ; une correction des montants
+ * déjà renseignés passe par une nouvelle migration.
+ */
+public class V8__backfill_wish_price_amount extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement select = context.getConnection().createStatement();
+             PreparedStatement update = context.getConnection().prepareStatement(
+                     "UPDATE wishes SET price_amount = ?, price_currency = ? WHERE id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery(
+                    "SELECT id, price FROM wishes WHERE price IS NOT NULL AND price_amount IS NULL")) {
+                int pending = 0;
+                while (rows.next()) {
+                    FrozenPriceParser.Parsed parsed = FrozenPriceParser.parse(rows.getString("price"));
+                    if (parsed == null) {
+                        continue;
+                    }
+                    update.setBigDecimal(1, parsed.amount());
+                    if (parsed.currency() != null) {
+                        update.setString(2, parsed.currency());
+                    } else {
+                        update.setNull(2, Types.VARCHAR);
+                    }
+                    update.setObject(3, rows.getObject("id"));
+                    update.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    update.executeBatch();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copie de {@code com.wishgifthub.service.PriceParser} telle qu'au moment de la migration (plafond de 10 chiffres
+     * avant la virgule, point seul suivi de 3 chiffres ambigu, quantités « 2 x 30€ » ignorées)
+     */
+    static final class FrozenPriceParser {
+
+        /**
+         * Nombre maximal de chiffres de la partie entière (NUMERIC(12,2) en base : 10 chiffres avant la virgule)
+         */
+        private static final int MAX_INTEGER_DIGITS = 10;
+
+        private static final BigDecimal MAX_AMOUNT = new BigDecimal("9999999999.99");
+
+        private static final String[] KNOWN_CODES = {
+                "EUR", "USD", "GBP", "CHF", "JPY", "CAD", "AUD", "NZD", "SEK", "NOK", "DKK", "PLN", "CZK", "HUF", "CNY", "INR", "BRL", "MXN"
+        };
+
+        private FrozenPriceParser() {
+        }
+
+        record Parsed(BigDecimal amount, String currency) {
+        }
+
+        /**
+         * Analyse un prix affiché
+         *
+         * @return le prix, ou null si le texte ne contient aucun nombre, un nombre ambigu ou trop grand
+         */
+        static Parsed parse(CharSequence text) {
+            if (text == null) {
+                return null;
+            }
+            int length = text.length();
+            int start = 0;
+            int end;
+            int lastSeparator;
+            char lastSeparatorChar;
+            int separators;
+            boolean mixedSeparators;
+            boolean repeatedSeparator;
+            while (true) {
+                while (start < length && !isDigit(text.charAt(start))) {
+                    start++;
+                }
+                if (start == length) {
+                    return null;
+                }
+
+                // Premier passage sur le nombre : fin du nombre et dernier séparateur ',' ou '.'
+                end = start;
+                lastSeparator = -1;
+                lastSeparatorChar = 0;
+                separators = 0;
+                mixedSeparators = false;
+                repeatedSeparator = false;
+                while (end < length) {
+                    char c = text.charAt(end);
+                    if (isDigit(c)) {
+                        end++;
+                        continue;
+                    }
+                    if (!isSeparator(c) || end + 1 >= length || !isDigit(text.charAt(end + 1))) {
+                        break;
+                    }
+                    separators++;
+                    if (c == ',' || c == '.') {
+                        if (lastSeparatorChar != 0) {
+                            if (lastSeparatorChar == c) {
+                                repeatedSeparator = true;
+                            } else {
+                                mixedSeparators = true;
+                            }
+                        }
+                        lastSeparator = end;
+                        lastSeparatorChar = c;
+                    }
+                    end++;
+                }
+
+                // « 2 x 30€ » : le premier nombre est une quantité, le prix est le suivant
+                int next = afterQuantity(text, end);
+                if (next == -1) {
+                    break;
+                }
+                start = next;
+            }
+
+            int decimalSeparator = -1;
+            if (lastSeparator != -1) {
+                int digitsAfter = end - lastSeparator - 1;
+                // « 1,299.99 » / « 1.299,99 » / « 29,9 » : décimal ; « 1,299 » / « 1.299.000 » : milliers ; « 1.299,000 » : décimal
+                if (digitsAfter != 3 ? !repeatedSeparator || mixedSeparators : mixedSeparators) {
+                    decimalSeparator = lastSeparator;
+                } else if (separators == 1 && lastSeparatorChar == '.') {
+                    // « 29.995 » : milliers ou décimales, sauf si la partie entière ne peut pas être un groupe de milliers
+                    int groupDigits = lastSeparator - start;
+                    if (groupDigits <= 3 && text.charAt(start) != '0') {
+                        return null;
+                    }
+                    decimalSeparator = lastSeparator;
+                }
+            }
+
+            // Second passage : construction du montant sans chaîne intermédiaire
+            long unscaled = 0;
+            int integerDigits = 0;
+            int fractionDigits = 0;
+            boolean roundUp = false;
+            boolean ignoredDigit = false;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (!isDigit(c)) {
+                    continue;
+                }
+                if (decimalSeparator != -1 && i > decimalSeparator) {
+                    if (fractionDigits == 2) {
+                        // Au-delà des centimes : arrondi sur le premier chiffre ignoré
+                        if (!ignoredDigit) {
+                            roundUp = c >= '5';
+                            ignoredDigit = true;
+                        }
+                        continue;
+                    }
+                    fractionDigits++;
+                } else if ((unscaled != 0 || c != '0') && ++integerDigits > MAX_INTEGER_DIGITS) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+            }
+            BigDecimal amount = BigDecimal.valueOf(roundUp ? unscaled + 1 : unscaled, fractionDigits).setScale(2, RoundingMode.UNNECESSARY);
+            if (amount.compareTo(MAX_AMOUNT) > 0) {
+                // « 9999999999.999 » arrondi à 10000000000.00
+                return null;
+            }
+
+            return new Parsed(amount, findCurrency(text));
+        }
+
+        /**
+         * Position du premier chiffre du nombre qui suit un signe de quantité (« x » ou « × », entouré d'espaces éventuels)
+         *
+         * @return la position, ou -1 si le nombre terminé en {@code end} n'est pas suivi d'un signe de quantité
+         */
+        private static int afterQuantity(CharSequence text, int end) {
+            int length = text.length();
+            int i = skipSpaces(text, end);
+            if (i >= length) {
+                return -1;
+            }
+            char c = text.charAt(i);
+            if (c != 'x' && c != 'X' && c != '×') {
+                return -1;
+            }
+            i = skipSpaces(text, i + 1);
+            return i < length && isDigit(text.charAt(i)) ? i : -1;
+        }
+
+        private static int skipSpaces(CharSequence text, int from) {
+            int i = from;
+            while (i < text.length() && (text.charAt(i) == ' ' || text.charAt(i) == '\u00a0' || text.charAt(i) == '\u202f')) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Devise indiquée par un symbole ou un code ISO n'importe où dans le texte
+         */
+        private static String findCurrency(CharSequence text) {
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '€':
+                        return "EUR";
+                    case '£':
+                        return "GBP";
+                    case '¥':
+                        return "JPY";
+                    case '₹':
+                        return "INR";
+                    case '$':
+                        return dollarCurrency(text, i);
+                    default:
+                        if (isUpper(c) && i + 2 < length && (i == 0 || !isLetter(text.charAt(i - 1)))
+                                && (i + 3 == length || !isLetter(text.charAt(i + 3)))) {
+                            String code = knownCode(text, i);
+                            if (code != null) {
+                                return code;
+                            }
+                        }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * {@code $}, {@code US$}, {@code CA$}/{@code C$}, {@code A$}/{@code AU$}
+         */
+        private static String dollarCurrency(CharSequence text, int dollar) {
+            if (dollar >= 1) {
+                char previous = Character.toUpperCase(text.charAt(dollar - 1));
+                char beforePrevious = dollar >= 2 ? Character.toUpperCase(text.charAt(dollar - 2)) : ' ';
+                if (previous == 'C' || (previous == 'A' && beforePrevious == 'C')) {
+                    return "CAD";
+                }
+                if (previous == 'A' || (previous == 'U' && beforePrevious == 'A')) {
+                    return "AUD";
+                }
+            }
+            return "USD";
+        }
+
+        private static String knownCode(CharSequence text, int offset) {
+            for (String code : KNOWN_CODES) {
+                if (text.charAt(offset) == code.charAt(0)
+                        && text.charAt(offset + 1) == code.charAt(1)
+                        && text.charAt(offset + 2) == code.charAt(2)) {
+                    return code;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isUpper(char c) {
+            return c >= 'A' && c <= 'Z';
+        }
+
+        private static boolean isLetter(char c) {
+            return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+        }
+
+        /**
+         * Séparateurs admis à l'intérieur d'un nombre : virgule, point, espaces (y compris insécables) et apostrophes
+         */
+        private static boolean isSeparator(char c) {
+            return c == ',' || c == '.' || c == ' ' || c == '\u00a0' || c == '\u202f' || c == '\'' || c == '’';
+        }
+    }
+}
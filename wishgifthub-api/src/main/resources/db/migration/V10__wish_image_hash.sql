@@ -0,0 +1,14 @@
+-- Migration pour l'empreinte des images de souhaits, identifiant public des miniatures (/api/images/{hash})
+
+-- SHA-256 hexadécimal de l'URL encodée en UTF-8 (même calcul que ImageThumbnailService.hashOf).
+-- convert_to est déclaré STABLE, mais la conversion vers UTF-8 ne dépend d'aucun paramètre de session :
+-- la fonction peut être déclarée IMMUTABLE, ce qu'exige une colonne générée.
+CREATE OR REPLACE FUNCTION image_url_hash(url TEXT) RETURNS VARCHAR(64)
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE
+    AS $$ SELECT encode(sha256(convert_to(url, 'UTF8')), 'hex') $$;
+
+ALTER TABLE wishes ADD COLUMN IF NOT EXISTS image_hash VARCHAR(64)
+    GENERATED ALWAYS AS (image_url_hash(image_url)) STORED;
+
+-- Recherche de l'image d'origine d'une miniature
+CREATE INDEX IF NOT EXISTS idx_wishes_image_hash ON wishes(image_hash);
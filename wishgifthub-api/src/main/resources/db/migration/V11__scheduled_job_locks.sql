@@ -0,0 +1,12 @@
+-- Migration pour les verrous des tâches planifiées (une seule instance exécute une tâche à la fois)
+
+CREATE TABLE IF NOT EXISTS scheduled_job_locks (
+    name VARCHAR(64) PRIMARY KEY,
+    locked_until TIMESTAMP WITH TIME ZONE NOT NULL,
+    locked_by VARCHAR(255) NOT NULL
+);
+
+-- Commentaires
+COMMENT ON TABLE scheduled_job_locks IS 'Verrou à bail par tâche planifiée, partagé entre les instances de l''API';
+COMMENT ON COLUMN scheduled_job_locks.locked_until IS 'Fin du bail : prolongé pendant l''exécution, libéré à la fin ; un bail expiré peut être repris';
+COMMENT ON COLUMN scheduled_job_locks.locked_by IS 'Instance détentrice du verrou';
@@ -0,0 +1,22 @@
+-- Migration pour conserver les métadonnées extraites des pages produit (partagées entre redémarrages et instances)
+
+CREATE TABLE IF NOT EXISTS url_metadata (
+    url_hash VARCHAR(64) PRIMARY KEY,
+    url VARCHAR(2048) NOT NULL,
+    title VARCHAR(1024),
+    description VARCHAR(10000),
+    image_url VARCHAR(2048),
+    price VARCHAR(100),
+    etag VARCHAR(1024),
+    last_modified VARCHAR(100),
+    fetched_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    checked_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Commentaires
+COMMENT ON TABLE url_metadata IS 'Métadonnées extraites des pages produit, indexées par URL normalisée';
+COMMENT ON COLUMN url_metadata.url_hash IS 'SHA-256 (hexadécimal) de l''URL normalisée';
+COMMENT ON COLUMN url_metadata.etag IS 'En-tête ETag de la dernière réponse (validateur pour les requêtes conditionnelles)';
+COMMENT ON COLUMN url_metadata.last_modified IS 'En-tête Last-Modified de la dernière réponse (validateur pour les requêtes conditionnelles)';
+COMMENT ON COLUMN url_metadata.fetched_at IS 'Date du dernier téléchargement complet de la page';
+COMMENT ON COLUMN url_metadata.checked_at IS 'Date de la dernière vérification de la page auprès du site';
@@ -0,0 +1,12 @@
+-- Migration pour stocker le prix des souhaits sous forme numérique (tri, totaux et budgets calculés en SQL)
+-- Le prix texte est conservé pour l'affichage ; les lignes existantes sont renseignées par la migration V8
+
+ALTER TABLE wishes ADD COLUMN IF NOT EXISTS price_amount NUMERIC(12, 2);
+ALTER TABLE wishes ADD COLUMN IF NOT EXISTS price_currency VARCHAR(3);
+
+-- Tri par prix et totaux des souhaits d'un groupe
+CREATE INDEX IF NOT EXISTS idx_wishes_group_id_price_amount ON wishes(group_id, price_amount);
+
+-- Commentaires
+COMMENT ON COLUMN wishes.price_amount IS 'Montant lu dans le prix texte (null si le prix est absent ou illisible)';
+COMMENT ON COLUMN wishes.price_currency IS 'Devise ISO 4217 lue dans le prix texte (null si non indiquée)';
@@ -0,0 +1,25 @@
+-- Migration pour la file d'attente des extractions en arrière-plan (partagée entre instances, conservée au redémarrage)
+
+CREATE TABLE IF NOT EXISTS extraction_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    wish_id UUID NOT NULL REFERENCES wishes(id) ON DELETE CASCADE,
+    url VARCHAR(2048) NOT NULL,
+    status VARCHAR(20) DEFAULT 'PENDING' NOT NULL,
+    attempts INTEGER DEFAULT 0 NOT NULL,
+    run_at TIMESTAMP WITH TIME ZONE DEFAULT now() NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT now() NOT NULL,
+    CONSTRAINT check_extraction_jobs_status CHECK (status IN ('PENDING', 'RUNNING', 'DEAD'))
+);
+
+-- Tâches prêtes à être prises (en attente, ou en cours dont le bail a expiré)
+CREATE INDEX IF NOT EXISTS idx_extraction_jobs_run_at ON extraction_jobs(run_at) WHERE status IN ('PENDING', 'RUNNING');
+
+-- Une seule tâche active par souhait
+CREATE UNIQUE INDEX IF NOT EXISTS idx_extraction_jobs_active_wish ON extraction_jobs(wish_id) WHERE status IN ('PENDING', 'RUNNING');
+
+-- Commentaires
+COMMENT ON TABLE extraction_jobs IS 'Extractions de métadonnées à réaliser en arrière-plan (prises avec FOR UPDATE SKIP LOCKED)';
+COMMENT ON COLUMN extraction_jobs.status IS 'PENDING : à faire ; RUNNING : prise par une instance ; DEAD : abandonnée après trop d''échecs';
+COMMENT ON COLUMN extraction_jobs.run_at IS 'PENDING : date de la prochaine tentative ; RUNNING : fin du bail de l''instance qui la traite';
+COMMENT ON COLUMN extraction_jobs.last_error IS 'Message de la dernière tentative en échec';
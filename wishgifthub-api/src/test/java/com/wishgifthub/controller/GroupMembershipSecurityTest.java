@@ -0,0 +1,140 @@
+package com.wishgifthub.controller;
+
+import com.wishgifthub.config.JwtAuthenticationEntryPoint;
+import com.wishgifthub.config.SecurityConfig;
+import com.wishgifthub.entity.User;
+import com.wishgifthub.service.JwtService;
+import com.wishgifthub.service.UserGroupService;
+import com.wishgifthub.service.UserService;
+import com.wishgifthub.service.UserSnapshotCache;
+import com.wishgifthub.service.WishService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Isolation des groupes : {@code @GroupMember} doit être appliqué par la sécurité des méthodes réellement configurée
+ * (SecurityConfig, filtre JWT), avec de vrais tokens. AopAutoConfiguration comme dans l'application : les contrôleurs
+ * sont proxifiés par classe et restent détectés par Spring MVC
+ */
+@WebMvcTest(controllers = {WishController.class, UserGroupController.class},
+        properties = {
+                "wishgifthub.jwt.secret=dGhpcy1pcy1hLXZlcnktbG9uZy10ZXN0LXNlY3JldC1rZXktZm9yLWhtYWMtc2hhMjU2",
+                "wishgifthub.jwt.expiration=3600000"
+        })
+@Import({SecurityConfig.class, JwtAuthenticationEntryPoint.class, JwtService.class,
+        GroupMembershipSecurityTest.Metrics.class})
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+class GroupMembershipSecurityTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @MockBean
+    private UserSnapshotCache userSnapshotCache;
+
+    @MockBean
+    private WishService wishService;
+
+    @MockBean
+    private UserGroupService userGroupService;
+
+    @MockBean
+    private UserService userService;
+
+    private final UUID group = UUID.randomUUID();
+
+    private final UUID otherGroup = UUID.randomUUID();
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("membre@example.com");
+        when(userSnapshotCache.find(user.getId())).thenReturn(Optional.of(
+                new UserSnapshotCache.UserSnapshot(user.getId(), user.getEmail(), false, null, null)));
+        token = "Bearer " + jwtService.generateToken(user, List.of(group));
+    }
+
+    @Test
+    void memberReadsGroupWishes() throws Exception {
+        mockMvc.perform(get("/api/groups/{groupId}/wishes", group).header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void nonMemberCannotReadGroupWishes() throws Exception {
+        mockMvc.perform(get("/api/groups/{groupId}/wishes", otherGroup).header("Authorization", token))
+                .andExpect(status().isForbidden());
+        verify(wishService, never()).getWishesByGroup(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void nonMemberCannotDeleteWish() throws Exception {
+        mockMvc.perform(delete("/api/groups/{groupId}/wishes/{wishId}", otherGroup, UUID.randomUUID())
+                        .header("Authorization", token))
+                .andExpect(status().isForbidden());
+        verify(wishService, never()).deleteWish(any(), any(), any());
+    }
+
+    @Test
+    void memberListsGroupUsers() throws Exception {
+        mockMvc.perform(get("/api/groups/{groupId}/users", group).header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void nonMemberCannotListGroupUsers() throws Exception {
+        mockMvc.perform(get("/api/groups/{groupId}/users", otherGroup).header("Authorization", token))
+                .andExpect(status().isForbidden());
+        verify(userGroupService, never()).getUsersByGroup(any(), any());
+    }
+
+    @Test
+    void unannotatedMethodIsNotRestrictedToAGroup() throws Exception {
+        mockMvc.perform(get("/api/groups/me").header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void anonymousIsUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/groups/{groupId}/wishes", group))
+                .andExpect(status().isUnauthorized());
+    }
+}
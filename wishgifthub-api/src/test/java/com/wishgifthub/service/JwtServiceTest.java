@@ -0,0 +1,98 @@
+package com.wishgifthub.service;
+
+import com.wishgifthub.entity.User;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Encodage des groupes dans le token (claim {@code gids}) et lecture des tokens émis avant lui
+ */
+class JwtServiceTest {
+
+    private static final String SECRET = "this-is-a-very-long-test-secret-key-for-hmac-sha256-123456";
+
+    private JwtService jwtService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "cacheEnabled", false);
+        ReflectionTestUtils.setField(jwtService, "cacheMaxSize", 100L);
+        jwtService.init();
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+    }
+
+    @Test
+    void groupIdsRoundTrip() {
+        List<UUID> groupIds = List.of(
+                UUID.fromString("123e4567-e89b-12d3-a456-426614174000"),
+                UUID.fromString("ffffffff-ffff-ffff-8000-000000000001"),
+                UUID.randomUUID());
+
+        JwtService.VerifiedToken token = jwtService.verify(jwtService.generateToken(user, groupIds));
+
+        assertThat(token.userId()).isEqualTo(user.getId());
+        assertThat(token.groupIds()).containsExactlyInAnyOrderElementsOf(groupIds);
+    }
+
+    @Test
+    void noGroupRoundTrip() {
+        String token = jwtService.generateToken(user, List.of());
+
+        assertThat(jwtService.getGroupIdsFromToken(token)).isEmpty();
+        assertThat(jwtService.getGroupIdsFromToken(jwtService.generateToken(user))).isEmpty();
+    }
+
+    @Test
+    void readsLegacyGroupIdsClaim() {
+        UUID groupId = UUID.randomUUID();
+        String token = signed(Jwts.builder().claim("groupIds", List.of(groupId.toString())));
+
+        assertThat(jwtService.getGroupIdsFromToken(token)).containsExactly(groupId);
+    }
+
+    @Test
+    void rejectsPackedGroupsOfWrongLength() {
+        String packed = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[17]);
+        String token = signed(Jwts.builder().claim("gids", packed));
+
+        assertThatThrownBy(() -> jwtService.verify(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rejectsPackedGroupsThatAreNotBase64Url() {
+        String token = signed(Jwts.builder().claim("gids", "not+base64/"));
+
+        assertThatThrownBy(() -> jwtService.verify(token)).isInstanceOf(JwtException.class);
+    }
+
+    private String signed(JwtBuilder builder) {
+        return builder
+                .setSubject(user.getId().toString())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
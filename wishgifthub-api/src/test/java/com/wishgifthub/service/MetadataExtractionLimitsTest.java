@@ -0,0 +1,89 @@
+package com.wishgifthub.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetadataExtractionLimitsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MetadataExtractionLimits limits;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limits = new MetadataExtractionLimits();
+        ReflectionTestUtils.setField(limits, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(limits, "maxBytes", 10L);
+        ReflectionTestUtils.setField(limits, "maxNodes", 100);
+        ReflectionTestUtils.setField(limits, "maxTextChars", 1000);
+        ReflectionTestUtils.setField(limits, "maxExtractionTime", Duration.ofSeconds(5));
+        limits.init();
+    }
+
+    @Test
+    void bodyOfExactlyMaxBytesIsNotTruncated() throws IOException {
+        assertThat(readAll(limits.limit(stream("0123456789")))).isEqualTo(10);
+        assertThat(truncated("bytes")).isZero();
+    }
+
+    @Test
+    void longerBodyIsTruncated() throws IOException {
+        assertThat(readAll(limits.limit(stream("0123456789A")))).isEqualTo(10);
+        assertThat(truncated("bytes")).isEqualTo(1);
+    }
+
+    @Test
+    void parsingStopsAtMaxNodes() throws IOException {
+        String html = "<html><body>" + "<p>x</p>".repeat(10_000) + "</body></html>";
+
+        Document doc = limits.parse(stream(html), "UTF-8", "https://example.com/", limits.deadline());
+
+        assertThat(doc.select("p").size()).isLessThan(100);
+        assertThat(doc.getAllElements().size()).isLessThanOrEqualTo(100);
+        assertThat(truncated("nodes")).isEqualTo(1);
+    }
+
+    @Test
+    void parsingStopsAtDeadline() throws IOException {
+        Document doc = limits.parse(stream("<html><body><p>x</p></body></html>"), "UTF-8", "https://example.com/",
+                System.nanoTime() - 1);
+
+        assertThat(doc.select("p")).isEmpty();
+    }
+
+    @Test
+    void smallPageIsParsedWhole() throws IOException {
+        Document doc = limits.parse(stream("<html><head><title>T</title></head><body><p>x</p></body></html>"),
+                "UTF-8", "https://example.com/", limits.deadline());
+
+        assertThat(doc.title()).isEqualTo("T");
+        assertThat(doc.select("p")).hasSize(1);
+        assertThat(truncated("nodes")).isZero();
+    }
+
+    private double truncated(String limit) {
+        return meterRegistry.get("metadata.limits.truncated").tag("limit", limit).counter().count();
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes().length;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.wishgifthub.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceParserTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "29,99 €|29.99|EUR",
+            "29.99 EUR|29.99|EUR",
+            "1 299,99 €|1299.99|EUR",
+            "$1,299.99|1299.99|USD",
+            "1.299,99 €|1299.99|EUR",
+            "$1,299|1299.00|USD",
+            "1.299.000 €|1299000.00|EUR",
+            "1'299.– CHF|1299.00|CHF",
+            "29,9 €|29.90|EUR",
+            "12,345 €|12345.00|EUR",
+            "9,995 €|9995.00|EUR",
+            "1234.567 €|1234.57|EUR",
+            "0.995 €|1.00|EUR",
+            "Prix: 2 x 30€|30.00|EUR",
+            "3× 12,50 €|12.50|EUR",
+            "9999999999.99 €|9999999999.99|EUR",
+            "0000000000012 €|12.00|EUR",
+    })
+    void parsesAmountAndCurrency(String text, String amount, String currency) {
+        PriceParser.ParsedPrice parsed = PriceParser.parse(text);
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.amount()).isEqualByComparingTo(new BigDecimal(amount));
+        assertThat(parsed.currency()).isEqualTo(currency);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // Point seul suivi de 3 chiffres : milliers ou décimales
+            "29.995 €",
+            "1.299 €",
+            // Plus de 10 chiffres avant la virgule : ne tient pas dans NUMERIC(12,2)
+            "12345678901 €",
+            "12 345 678 901,50 €",
+            "9999999999.999 €",
+            // Aucun nombre
+            "Prix sur demande",
+            "",
+    })
+    void rejectsAmbiguousOrOversizedPrices(String text) {
+        assertThat(PriceParser.parse(text)).isNull();
+    }
+
+    @Test
+    void tenIntegerDigitsFitTheColumn() {
+        PriceParser.ParsedPrice parsed = PriceParser.parse("1234567890,12 €");
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.amount().precision()).isLessThanOrEqualTo(12);
+        assertThat(parsed.amount().scale()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsPriceWithoutCurrency() {
+        PriceParser.ParsedPrice parsed = PriceParser.parse("42");
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.amount()).isEqualByComparingTo("42");
+        assertThat(parsed.currency()).isNull();
+    }
+}
@@ -0,0 +1,102 @@
+package db.migration;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migration V8 sur des prix texte saisis avant l'ajout de {@code price_amount}, et sa copie figée de l'analyseur
+ */
+class V8BackfillWishPriceAmountTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void backfillsParsedPricesAndSkipsOversizedOrAmbiguousOnes() {
+        DataSource dataSource = postgres.getPostgresDatabase();
+        migrate(dataSource, "7");
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        UUID userId = jdbc.queryForObject("INSERT INTO users (email) VALUES ('v8@example.com') RETURNING id", UUID.class);
+        UUID groupId = jdbc.queryForObject("INSERT INTO groups (name, type, admin_id) VALUES ('G', 'noël', ?) RETURNING id",
+                UUID.class, userId);
+        UUID regular = insertWish(jdbc, userId, groupId, "29,99 €");
+        UUID oversized = insertWish(jdbc, userId, groupId, "12345678901 €");
+        UUID ambiguous = insertWish(jdbc, userId, groupId, "29.995 €");
+        UUID text = insertWish(jdbc, userId, groupId, "Prix sur demande");
+
+        migrate(dataSource, "8");
+
+        assertThat(amountOf(jdbc, regular)).containsEntry("price_currency", "EUR");
+        assertThat((BigDecimal) amountOf(jdbc, regular).get("price_amount")).isEqualByComparingTo("29.99");
+        for (UUID skipped : new UUID[]{oversized, ambiguous, text}) {
+            assertThat(amountOf(jdbc, skipped)).containsEntry("price_amount", null).containsEntry("price_currency", null);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "29,99 €|29.99|EUR",
+            "1 299,99 €|1299.99|EUR",
+            "$1,299|1299.00|USD",
+            "1.299,99 €|1299.99|EUR",
+            "1234.567 €|1234.57|EUR",
+            "Prix: 2 x 30€|30.00|EUR",
+            "9999999999.99 €|9999999999.99|EUR",
+    })
+    void frozenParserReadsAmountAndCurrency(String text, String amount, String currency) {
+        V8__backfill_wish_price_amount.FrozenPriceParser.Parsed parsed = V8__backfill_wish_price_amount.FrozenPriceParser.parse(text);
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.amount()).isEqualByComparingTo(new BigDecimal(amount));
+        assertThat(parsed.currency()).isEqualTo(currency);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"29.995 €", "1.299 €", "12345678901 €", "9999999999.999 €", "Prix sur demande"})
+    void frozenParserRejectsAmbiguousOrOversizedPrices(String text) {
+        assertThat(V8__backfill_wish_price_amount.FrozenPriceParser.parse(text)).isNull();
+    }
+
+    private static void migrate(DataSource dataSource, String target) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .target(target)
+                .load()
+                .migrate();
+    }
+
+    private static UUID insertWish(JdbcTemplate jdbc, UUID userId, UUID groupId, String price) {
+        return jdbc.queryForObject("INSERT INTO wishes (user_id, group_id, gift_name, price) VALUES (?, ?, 'Cadeau', ?) RETURNING id",
+                UUID.class, userId, groupId, price);
+    }
+
+    private static Map<String, Object> amountOf(JdbcTemplate jdbc, UUID wishId) {
+        return jdbc.queryForMap("SELECT price_amount, price_currency FROM wishes WHERE id = ?", wishId);
+    }
+}
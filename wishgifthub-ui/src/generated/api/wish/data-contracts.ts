@@ -297,6 +297,12 @@ export interface WishResponse {
    * @example "https://example.com/image.jpg"
    */
   imageUrl?: string | null;
+  /**
+   * Adresse de la miniature de l'image servie par l'API (480 px, `?size=160` pour la petite taille),
+   * à utiliser pour l'affichage à la place de `imageUrl` (null si le souhait n'a pas d'image)
+   * @example "/api/images/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08"
+   */
+  thumbnailUrl?: string | null;
   /**
    * Prix estimé du produit
    * @example "29.99 €"
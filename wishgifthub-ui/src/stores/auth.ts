@@ -3,6 +3,7 @@ import {defineStore} from 'pinia'
 import {jwtDecode} from 'jwt-decode'
 import {getApiClient, updateApiToken} from '@/api/client'
 import {useGroupStore} from './group'
+import {groupIdsFromToken} from '@/utils/jwt'
 import type {UserResponse} from '@/generated/api/wish/data-contracts'
 
 /**
@@ -24,7 +25,8 @@ export interface User {
 interface JwtPayload {
   sub: string // userId
   isAdmin: boolean
-  groupIds?: string[]
+  gids?: string // groupes encodés (voir groupIdsFromToken)
+  groupIds?: string[] // ancienne forme, tokens émis avant gids
   iat: number
   exp: number
 }
@@ -56,7 +58,7 @@ export const useAuthStore = defineStore('auth', () => {
 
       // Décoder le token JWT pour extraire les groupIds
       const decodedToken = jwtDecode<JwtPayload>(authData.token)
-      const groupIds = decodedToken.groupIds || []
+      const groupIds = groupIdsFromToken(decodedToken)
 
       console.log('Auth data received:', authData) // Debug log
 
@@ -110,7 +112,7 @@ export const useAuthStore = defineStore('auth', () => {
     try {
       // Décoder le token JWT pour extraire les informations
       const decodedToken = jwtDecode<JwtPayload>(jwtToken)
-      const groupIds = decodedToken.groupIds || []
+      const groupIds = groupIdsFromToken(decodedToken)
       const userId = decodedToken.sub
 
       // Construire l'objet User avec les informations reçues de l'invitation
@@ -197,7 +199,7 @@ export const useAuthStore = defineStore('auth', () => {
           // Mettre à jour le client API avec le token restauré
           updateApiToken(storedToken)
 
-          const groupIds = decodedToken.groupIds || []
+          const groupIds = groupIdsFromToken(decodedToken)
 
           // Récupérer les groupes pour tous les utilisateurs (admin ou non)
           if (groupIds.length > 0) {
@@ -240,7 +242,7 @@ export const useAuthStore = defineStore('auth', () => {
     try {
       const decodedToken = jwtDecode<JwtPayload>(newToken)
       if (user.value) {
-        user.value.groupIds = decodedToken.groupIds || []
+        user.value.groupIds = groupIdsFromToken(decodedToken)
         localStorage.setItem('user', JSON.stringify(user.value))
       }
     } catch (err) {
@@ -0,0 +1,23 @@
+/**
+ * Groupes inscrits dans le token JWT.
+ * - gids : UUID binaires de 16 octets mis bout à bout, encodés en base64url
+ * - groupIds : ancienne forme (liste d'UUID), présente dans les tokens émis auparavant
+ */
+export function groupIdsFromToken(payload: { gids?: string; groupIds?: string[] }): string[] {
+  if (payload.gids === undefined) {
+    return payload.groupIds || []
+  }
+  const base64 = payload.gids.replace(/-/g, '+').replace(/_/g, '/')
+  const binary = atob(base64 + '='.repeat((4 - (base64.length % 4)) % 4))
+  const groupIds: string[] = []
+  for (let offset = 0; offset + 16 <= binary.length; offset += 16) {
+    let hex = ''
+    for (let i = offset; i < offset + 16; i++) {
+      hex += binary.charCodeAt(i).toString(16).padStart(2, '0')
+    }
+    groupIds.push(
+      `${hex.slice(0, 8)}-${hex.slice(8, 12)}-${hex.slice(12, 16)}-${hex.slice(16, 20)}-${hex.slice(20)}`
+    )
+  }
+  return groupIds
+}